@@ -0,0 +1,58 @@
+package base;
+
+import customsprites.PowerUp;
+
+/**
+ * The roles a Sprite can play in the game loop. The Sprite Manager keeps a registry of the Sprites
+ * providing each capability, so per-frame dispatch only visits the Sprites that are relevant to it
+ * instead of testing every Sprite on the level.
+ */
+public enum Capability {
+  /** Sprites ticked individually on every update, i.e. all TimeSupport Sprites not moved in bulk */
+  TICKABLE,
+  /** Sprites notified of key presses */
+  KEY_LISTENER,
+  /** Sprites the player can collide with */
+  COLLIDABLE,
+  /** Sprites that carry riders */
+  DRIVER,
+  /** Sprites that can ride a Driver */
+  PASSENGER,
+  /** Power-ups that can be collected */
+  POWER_UP;
+
+  /**
+   * Gets the bit representing this capability in a capability mask
+   *
+   * @return A mask with only this capability set
+   */
+  public int getMask() {
+    return 1 << ordinal();
+  }
+
+  /**
+   * Determines whether a Sprite provides this capability
+   *
+   * @param sprite The Sprite to check
+   * @return True if the Sprite plays this role, else False
+   */
+  public boolean isProvidedBy(Sprite sprite) {
+    switch (this) {
+      case TICKABLE:
+        return sprite instanceof TimeSupport
+            && !(sprite instanceof MovingSprite && ((MovingSprite) sprite).hasLinearMotion());
+      case KEY_LISTENER:
+        return sprite instanceof KeySupport;
+      case COLLIDABLE:
+        return sprite instanceof Collidable;
+      case DRIVER:
+        return sprite instanceof Driver;
+      case PASSENGER:
+        return sprite instanceof PassengerSupport;
+      case POWER_UP:
+        return sprite instanceof PowerUp;
+      default:
+        return false;
+    }
+  }
+}
@@ -3,6 +3,7 @@ package base;
 import core.App;
 import core.Level;
 import utilities.Position;
+import utilities.StateBuffer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -22,8 +23,6 @@ public class Driver extends MovingSprite {
   private final Logger log = Logger.getLogger(getClass().getSimpleName());
   /** Keeps track of all currently riding sprites at an instance */
   private final List<Sprite> ridingSprites = new ArrayList<>();
-  /** A list of all positions that the player can snap to on the driver */
-  private final List<Position> playerSnapPositions = new ArrayList<>();
   /** Indicates whether the driver is ridable at a given instance */
   private boolean rideable = true;
 
@@ -57,31 +56,29 @@ public class Driver extends MovingSprite {
     this.rideable = rideable;
   }
 
-  /**
-   * Updates a list of possible positions that the rider can snap to (helper function to prevent
-   * pixel glitching).
-   */
-  private void updateSnapPositions() {
-    playerSnapPositions.clear();
-    float firstSnap = getBottomLeftAnchor().getX() + App.getTileLength() / 2f;
-    int j = 0;
-    int numSnaps = Math.round(getWidth() / App.getTileLength());
-    for (float i = firstSnap; j < numSnaps; i += App.getTileLength(), j++) {
-      playerSnapPositions.add(new Position(i, getLocation().getY()));
-    }
-  }
-
   /**
    * Repositions the rider onto a discrete point on the Driver in an attempt to prevent pixel
-   * glitching. This looks visually appealing and logical.
+   * glitching. This looks visually appealing and logical. The snap points are the centers of the
+   * tiles covered by the Driver, all at the Driver's height, so the closest one is found by walking
+   * them horizontally rather than building a list of positions.
    *
    * @param rider The rider to reposition
    */
   private void snapRider(PassengerSupport rider) {
-    updateSnapPositions();
     Sprite ridingSprite = (Sprite) rider;
-    Position closestSnap = ridingSprite.getLocation().getClosest(playerSnapPositions);
-    ridingSprite.setLocation(closestSnap);
+    int numSnaps = Math.round(getWidth() / App.getTileLength());
+    if (numSnaps == 0) {
+      return;
+    }
+    float snapX = getAnchorX() + App.getTileLength() / 2f;
+    float closestX = snapX;
+    for (int j = 1; j < numSnaps; j++) {
+      snapX += App.getTileLength();
+      if (Math.abs(ridingSprite.getX() - snapX) < Math.abs(ridingSprite.getX() - closestX)) {
+        closestX = snapX;
+      }
+    }
+    ridingSprite.setLocation(closestX, getY());
   }
 
   /**
@@ -135,9 +132,64 @@ public class Driver extends MovingSprite {
   public void respawn() {
     super.respawn();
     if (ridingSprites.size() > 0) {
-      for (Sprite sprite : ridingSprites) {
-        sprite.setLocation(getLocation());
+      for (int i = 0; i < ridingSprites.size(); i++) {
+        ridingSprites.get(i).setLocation(getX(), getY());
+        ridingSprites.get(i).skipInterpolation();
       }
     }
   }
+
+  /**
+   * Writes whether the Driver is rideable and the entities of its riders along with the state of
+   * the MovingSprite
+   *
+   * @param out The buffer to write to
+   */
+  @Override
+  public void writeState(StateBuffer out) {
+    super.writeState(out);
+    out.writeBoolean(rideable);
+    out.writeInt(ridingSprites.size());
+    for (int i = 0; i < ridingSprites.size(); i++) {
+      out.writeInt(ridingSprites.get(i).getEntityIndex());
+    }
+  }
+
+  /**
+   * Restores whether the Driver is rideable and its riders along with the state of the
+   * MovingSprite. Riders are taken back on without being snapped, as they were written in place.
+   *
+   * @param in The buffer to read from
+   */
+  @Override
+  public void readState(StateBuffer in) {
+    super.readState(in);
+    rideable = in.readBoolean();
+    ridingSprites.clear();
+    int riders = in.readInt();
+    for (int i = 0; i < riders; i++) {
+      ridingSprites.add(getEntityStore().getView(in.readInt()));
+    }
+  }
+
+  /**
+   * A Driver carrying riders moves them on its tick, so it can only be ticked alongside other
+   * Sprites while it is empty
+   *
+   * @return True if no Sprites are riding the Driver, else False
+   */
+  @Override
+  public boolean ticksIndependently() {
+    return ridingSprites.isEmpty();
+  }
+
+  /**
+   * A Driver has per-tick behaviour, so it is ticked individually
+   *
+   * @return False
+   */
+  @Override
+  public boolean hasLinearMotion() {
+    return false;
+  }
 }
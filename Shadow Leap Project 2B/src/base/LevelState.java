@@ -11,5 +11,7 @@ public enum LevelState {
   /** Signifies the player has lost a life */
   PlayerDeath,
   /** Signifies that the level has been partially completed (i.e. hole filled) */
-  PartlyFinished
+  PartlyFinished,
+  /** Signifies that the player has collected a power-up */
+  PowerUpCollected
 }
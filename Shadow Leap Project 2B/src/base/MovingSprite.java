@@ -1,8 +1,10 @@
 package base;
 
 import core.App;
+import core.EntityStore;
 import core.Level;
 import utilities.Position;
+import utilities.StateBuffer;
 import utilities.Velocity;
 
 /**
@@ -13,7 +15,7 @@ import utilities.Velocity;
  */
 public class MovingSprite extends Sprite implements TimeSupport {
   /* constant used to ensure the MovingSprite is just in bounds while minimising its visibility */
-  private static final float RESPAWN_PADDING = 0.47f;
+  public static final float RESPAWN_PADDING = 0.47f;
   private Velocity movementVelocity;
 
   /**
@@ -29,6 +31,71 @@ public class MovingSprite extends Sprite implements TimeSupport {
       Level spawnLevel, String name, String imageSrc, Position centerPos, Velocity velocity) {
     super(spawnLevel, name, imageSrc, centerPos);
     movementVelocity = velocity;
+    getEntityStore()
+        .setVelocity(getEntityIndex(), velocity.getHorizontal(), velocity.getVertical());
+    getEntityStore().setFlags(getEntityIndex(), EntityStore.FLAG_LINEAR, hasLinearMotion());
+  }
+
+  /**
+   * Specifies whether the MovingSprite does nothing on a tick but move at its velocity and wrap
+   * around the screen. Such Sprites are moved in bulk by {@link EntityStore#integrate(int)}
+   * instead of being ticked one by one, so subclasses that override {@link #onTimeTick(int)}, or
+   * whose {@link #respawn()} moves other Sprites, must return False.
+   *
+   * @return True if the MovingSprite only moves linearly, else False
+   */
+  public boolean hasLinearMotion() {
+    return true;
+  }
+
+  /**
+   * Specifies whether the next tick of the MovingSprite only reads and changes the MovingSprite
+   * itself. Such ticks can run concurrently with each other (see {@link core.LaneTicker}), so
+   * subclasses whose {@link #onTimeTick(int)} looks at or moves other Sprites must return False.
+   *
+   * @return True if the tick is independent of every other Sprite, else False
+   */
+  public boolean ticksIndependently() {
+    return true;
+  }
+
+  /**
+   * Writes the velocity of the MovingSprite along with the state of the Sprite
+   *
+   * @param out The buffer to write to
+   */
+  @Override
+  public void writeState(StateBuffer out) {
+    super.writeState(out);
+    out.writeFloat(movementVelocity.getHorizontal());
+    out.writeFloat(movementVelocity.getVertical());
+  }
+
+  /**
+   * Restores the velocity of the MovingSprite along with the state of the Sprite
+   *
+   * @param in The buffer to read from
+   */
+  @Override
+  public void readState(StateBuffer in) {
+    super.readState(in);
+    movementVelocity = readVelocity(in, movementVelocity);
+  }
+
+  /**
+   * Reads a velocity written as its horizontal and vertical speed
+   *
+   * @param in The buffer to read from
+   * @param current The velocity held so far, kept if it is unchanged
+   * @return A velocity with the speeds read
+   */
+  protected static Velocity readVelocity(StateBuffer in, Velocity current) {
+    float horizontal = in.readFloat();
+    float vertical = in.readFloat();
+    if (current.getHorizontal() == horizontal && current.getVertical() == vertical) {
+      return current;
+    }
+    return new Velocity(horizontal, vertical);
   }
 
   /**
@@ -46,7 +113,24 @@ public class MovingSprite extends Sprite implements TimeSupport {
    * @param movementVelocity The Velocity to change to
    */
   public void setMovementVelocity(Velocity movementVelocity) {
+    boolean wasStatic = isStatic();
     this.movementVelocity = movementVelocity;
+    getEntityStore()
+        .setVelocity(
+            getEntityIndex(), movementVelocity.getHorizontal(), movementVelocity.getVertical());
+    if (wasStatic != isStatic()) {
+      getLevel().getSpriteManager().invalidateStaticLayer();
+    }
+  }
+
+  /**
+   * A MovingSprite is static while it has no velocity
+   *
+   * @return True if the MovingSprite does not move, else False
+   */
+  @Override
+  public boolean isStatic() {
+    return movementVelocity.getMagnitude() == 0;
   }
 
   /**
@@ -57,8 +141,9 @@ public class MovingSprite extends Sprite implements TimeSupport {
    */
   private float getClosestWall(float xVal) {
     float leftDiff = Math.abs(xVal - 0);
-    float rightDiff = Math.abs(xVal - App.getScreenWidth());
-    return leftDiff < rightDiff ? 0 : App.getScreenWidth();
+    float wrapWidth = getEntityStore().getWrapWidth();
+    float rightDiff = Math.abs(xVal - wrapWidth);
+    return leftDiff < rightDiff ? 0 : wrapWidth;
   }
 
   /**
@@ -80,18 +165,19 @@ public class MovingSprite extends Sprite implements TimeSupport {
    */
   public void respawn() {
     /* Variables to hold transformations to find new spawn location */
-    float roundedX = getLocation().getX();
-    float roundedY = getLocation().getY();
+    float roundedX = getX();
+    float roundedY = getY();
     /* Truth values to determine whether object has over-stepped vertical
      * or horizontal boundaries
      */
-    boolean horizontalExtend = roundedX < 0 || roundedX > App.getScreenWidth();
+    float wrapWidth = getEntityStore().getWrapWidth();
+    boolean horizontalExtend = roundedX < 0 || roundedX > wrapWidth;
     boolean verticalExtend = roundedY < 0 || roundedY > App.getScreenHeight();
     /* performs loop arithmetic with error-fixed values p(new) = (p(old) + v) % (height/width)*/
     /* math.stackexchange.com/questions/2907303/finding-opposite-edge-wraparound-location-given-vector-and-location */
     float newX = roundedX + movementVelocity.getHorizontal();
     float newY = roundedY + movementVelocity.getVertical();
-    newX = (newX % App.getScreenWidth()) + (newX < 0 ? App.getScreenWidth() : 0);
+    newX = (newX % wrapWidth) + (newX < 0 ? wrapWidth : 0);
     newY = (newY % App.getScreenHeight()) + (newY < 0 ? App.getScreenHeight() : 0);
     /* performs further error-adjustment that may have resulted in bugged modulo arithmetic
      * also respawns bus as close to out-of-bounds as possible to enforce a smooth animation
@@ -114,9 +200,9 @@ public class MovingSprite extends Sprite implements TimeSupport {
         newY += heightPadding;
       }
     }
-    /* returns, logs, and sets the new position */
-    Position newPos = new Position(newX, newY);
-    setLocation(newPos);
+    /* sets the new position, which is drawn straight away rather than slid towards */
+    setLocation(newX, newY);
+    skipInterpolation();
   }
 
   /**
@@ -135,8 +221,6 @@ public class MovingSprite extends Sprite implements TimeSupport {
     }
     float xDelta = movementVelocity.getHorizontal() * delta;
     float yDelta = movementVelocity.getVertical() * delta;
-    float newX = getLocation().getX() + xDelta;
-    float newY = getLocation().getY() + yDelta;
-    setLocation(new Position(newX, newY));
+    setLocation(getX() + xDelta, getY() + yDelta);
   }
 }
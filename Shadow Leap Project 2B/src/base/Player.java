@@ -3,13 +3,16 @@ package base;
 import core.App;
 import core.Level;
 import core.SpriteAssetManager;
+import core.TextureCache;
 import customsprites.PowerUp;
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Image;
 import org.newdawn.slick.Input;
 import org.newdawn.slick.SlickException;
 import utilities.Position;
+import utilities.StateBuffer;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -29,24 +32,45 @@ public class Player extends Sprite
   private static final String LIVES_IMAGE_NAME = "lives";
   /** Represents the location at which to render the life counter position */
   private static final Position LIFE_COUNTER_POS = new Position(24, 744);
-  /** Image representing the */
-  private static Image livesImage;
+  /** Image representing the lives remaining */
+  private Image livesImage;
   /** Used for internal JVM logging */
   private final Logger log = Logger.getLogger(getClass().getSimpleName());
   /** Tracks the number of lives remaining for the player */
   private int lives = 3;
   /** The driver that the player is riding on - can be null */
   private Driver driver;
+  /** Reusable buffers for the per-tick intersection queries */
+  private final List<Sprite> collidableSprites = new ArrayList<>(),
+      powerUps = new ArrayList<>(),
+      drivers = new ArrayList<>();
 
   public Player(Level spawnLevel, String imageSrc, Position centerPos) {
     super(spawnLevel, "base.Player", imageSrc, centerPos);
+    if (spawnLevel.loadsTexturesEagerly()) {
+      loadLivesImage();
+    }
+  }
+
+  /** Acquires the lives icon from the texture cache if it has not been loaded yet */
+  private void loadLivesImage() {
+    if (livesImage != null || getLevel().isHeadless()) {
+      return;
+    }
     try {
-      livesImage = new Image(SpriteAssetManager.getAssetPath(LIVES_IMAGE_NAME));
+      livesImage = TextureCache.acquire(SpriteAssetManager.getAssetPath(LIVES_IMAGE_NAME));
     } catch (SlickException e) {
       e.printStackTrace();
     }
   }
 
+  /** Loads both the Player image and the lives image */
+  @Override
+  public void loadImage() {
+    super.loadImage();
+    loadLivesImage();
+  }
+
   /**
    * Gets the number of lives left for the Player
    *
@@ -77,6 +101,41 @@ public class Player extends Sprite
     }
   }
 
+  /**
+   * Writes the lives left and the driver of the Player along with the state of the Sprite
+   *
+   * @param out The buffer to write to
+   */
+  @Override
+  public void writeState(StateBuffer out) {
+    super.writeState(out);
+    out.writeInt(lives);
+    out.writeInt(driver == null ? -1 : driver.getEntityIndex());
+  }
+
+  /**
+   * Restores the lives left and the driver of the Player along with the state of the Sprite
+   *
+   * @param in The buffer to read from
+   */
+  @Override
+  public void readState(StateBuffer in) {
+    super.readState(in);
+    lives = in.readInt();
+    int driverEntity = in.readInt();
+    driver = driverEntity < 0 ? null : (Driver) getEntityStore().getView(driverEntity);
+  }
+
+  /** Releases both the Player image and the lives image */
+  @Override
+  public void releaseImage() {
+    super.releaseImage();
+    if (livesImage != null) {
+      TextureCache.release(SpriteAssetManager.getAssetPath(LIVES_IMAGE_NAME));
+      livesImage = null;
+    }
+  }
+
   /**
    * Determines whether the Position given is out of the screen bounds
    *
@@ -143,7 +202,7 @@ public class Player extends Sprite
     /* signals player has died */
     if ((driver == null || !driver.isRideable()) && sprite instanceof Obstacle) {
       log.info("Collided with " + sprite.getSpriteName());
-      getLevel().changeWorldState(LevelState.PlayerDeath);
+      getLevel().getEventBus().publish(LevelState.PlayerDeath, this);
     }
   }
 
@@ -152,17 +211,18 @@ public class Player extends Sprite
   public void onScreenBoundsExtended() {
     /* signals player has died */
     log.info("The player has exceeded screen bounds.");
-    getLevel().changeWorldState(LevelState.PlayerDeath);
+    getLevel().getEventBus().publish(LevelState.PlayerDeath, this);
   }
 
   /**
    * Sets the location of the Player with bound checking
    *
-   * @param center The location to center the Player at
+   * @param x The x coordinate to center the Player at
+   * @param y The y coordinate to center the Player at
    */
   @Override
-  public void setLocation(Position center) {
-    super.setLocation(center);
+  public void setLocation(float x, float y) {
+    super.setLocation(x, y);
     if (super.checkOutOfBounds()) {
       onScreenBoundsExtended();
     }
@@ -177,20 +237,26 @@ public class Player extends Sprite
   public void onTimeTick(int delta) {
     checkForDrivers();
     checkCollision();
-    if (getLocation().getY() <= Level.getWinningY()) {
-      getLevel().changeWorldState(LevelState.PartlyFinished);
+    if (getY() <= Level.getWinningY()) {
+      getLevel().getEventBus().publish(LevelState.PartlyFinished, this);
     }
   }
 
-  /** Handles collision detection is occuring */
+  /**
+   * Handles collision detection is occuring. Collidables are swept along their movement during the
+   * step, so fast movers cannot skip over the Player when the simulation step is long.
+   */
   @Override
   public void checkCollision() {
-    List<Sprite> collidableSprites =
-        getLevel().getSpriteManager().getIntersectingSprites(this, s -> s instanceof Collidable);
-    List<Sprite> powerUps =
-        getLevel().getSpriteManager().getIntersectingSprites(this, s -> s instanceof PowerUp);
-    for (Sprite powerUpSprite : powerUps) {
-      ((PowerUp) powerUpSprite).applyPowerUp(this);
+    SpriteAssetManager manager = getLevel().getSpriteManager();
+    collidableSprites.clear();
+    manager.collectSweptIntersectingSprites(this, Capability.COLLIDABLE, collidableSprites);
+    powerUps.clear();
+    if (manager.hasSprites(Capability.POWER_UP)) {
+      manager.collectIntersectingSprites(this, Capability.POWER_UP, powerUps);
+    }
+    for (int i = 0; i < powerUps.size(); i++) {
+      ((PowerUp) powerUps.get(i)).collect();
     }
     if (collidableSprites.size() > 0) {
       /* only care about colliding with first sprite, otherwise multiple deaths*/
@@ -198,6 +264,26 @@ public class Player extends Sprite
     }
   }
 
+  /**
+   * The Player is drawn above every other Sprite
+   *
+   * @return The player render layer
+   */
+  @Override
+  public int getRenderLayer() {
+    return RENDER_LAYER_PLAYER;
+  }
+
+  /**
+   * The Player is never batched since it also draws the lives remaining
+   *
+   * @return False
+   */
+  @Override
+  public boolean isBatchable() {
+    return false;
+  }
+
   /**
    * Renders both the Player and its lives remaining
    *
@@ -219,8 +305,8 @@ public class Player extends Sprite
   /** Checks if the Sprite has encountered a potential Driver Sprite it can latch onto */
   @Override
   public void checkForDrivers() {
-    List<Sprite> drivers =
-        this.getLevel().getSpriteManager().getIntersectingSprites(this, s -> s instanceof Driver);
+    drivers.clear();
+    getLevel().getSpriteManager().collectIntersectingSprites(this, Capability.DRIVER, drivers);
     if (drivers.size() == 0) {
       if (driver != null) {
         detachDriver();
@@ -1,11 +1,15 @@
 package base;
 
 import core.App;
+import core.EntityStore;
+import core.ImageMetadata;
 import core.Level;
+import core.TextureCache;
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Image;
 import utilities.BoundingBox;
 import utilities.Position;
+import utilities.StateBuffer;
 
 /**
  * The superclass of all rendered objects in the game (tiles, obstacles, drivers, players, e.t.c.)
@@ -14,18 +18,37 @@ import utilities.Position;
  * @see <a href="github.com/Trontor">Hosted on GitHub</a>
  */
 public class Sprite {
+  /** Render layer of static background tiles */
+  public static final int RENDER_LAYER_TILES = 0;
+  /** Render layer of moving obstacles and drivers */
+  public static final int RENDER_LAYER_MOVERS = 1;
+  /** Render layer of Sprites carried on top of drivers */
+  public static final int RENDER_LAYER_RIDERS = 2;
+  /** Render layer of the Player, drawn above everything else */
+  public static final int RENDER_LAYER_PLAYER = 3;
+  /** The number of render layers */
+  public static final int RENDER_LAYER_COUNT = 4;
   /** The name of the Sprite */
   private final String spriteName;
   /** The level that the Sprite is a part of */
   private final Level level;
-  /** The center position to spawn the sprite at */
-  private Position centerPosition;
+  /** The store holding the position, velocity and dimensions of the Sprite */
+  private final EntityStore store;
+  /** The slot of the Sprite in its store */
+  private final int entity;
+  /** The last center position handed out, reused while the Sprite does not move */
+  private Position location;
   /** The hitbox representing the bounds of the Sprite */
   private BoundingBox hitBox;
   /** The image representing the visual aspect of this Sprite */
   private Image image;
-  /** The dimensions of the sprite */
-  private float height, width;
+  /** The texture cache id of the image, -1 while it has none */
+  private int textureId = -1;
+  /** The asset path of the image representing this Sprite */
+  private final String imageSource;
+  /** Whether the shared image is the horizontally flipped variant */
+  private boolean flipped;
+
   /**
    * Initialises a new Sprite object
    *
@@ -35,27 +58,48 @@ public class Sprite {
    * @param centerPos The location to spawn the Sprite at
    */
   public Sprite(Level spawnLevel, String name, String imageSrc, Position centerPos) {
-    this.centerPosition = new Position(App.getScreenWidth() / 2f, App.getScreenHeight() / 2f);
     this.level = spawnLevel;
     spriteName = name;
-    setImage(imageSrc);
+    store =
+        spawnLevel != null && spawnLevel.getSpriteManager() != null
+            ? spawnLevel.getSpriteManager().getEntityStore()
+            : new EntityStore();
+    entity = store.add(this, name);
+    store.setPosition(entity, App.getScreenWidth() / 2f, App.getScreenHeight() / 2f);
+    imageSource = imageSrc;
+    if (spawnLevel != null && !spawnLevel.loadsTexturesEagerly()) {
+      setDimensions(imageSrc);
+    } else {
+      loadImage();
+    }
     if (hitBox == null) {
-      hitBox = new BoundingBox(image, centerPos);
+      hitBox = new BoundingBox(getWidth(), getHeight(), centerPos);
+      store.setHitSize(entity, hitBox.getWidth(), hitBox.getHeight());
     }
     setLocation(centerPos);
+    skipInterpolation();
   }
 
   /**
-   * Gets the current bounding box of the Sprite
+   * Gets the current bounding box of the Sprite. The bounding box of a Sprite whose position is
+   * computed analytically (see {@link EntityStore#setAnalyticMotion(boolean)}) is moved to that
+   * position first.
    *
    * @return BoundingBox object of Sprite
    */
   public BoundingBox getHitBox() {
+    if (hitBox != null && store.isAnalytic(entity)) {
+      hitBox.setX(store.getX(entity));
+    }
     return hitBox;
   }
 
   public void setHitBox(BoundingBox hitBox) {
     this.hitBox = hitBox;
+    if (hitBox != null) {
+      store.setHitSize(entity, hitBox.getWidth(), hitBox.getHeight());
+    }
+    updateSpatialIndex();
   }
 
   /**
@@ -74,21 +118,116 @@ public class Sprite {
    */
   public void setImage(Image image) {
     this.image = image;
+    textureId = -1;
   }
 
   /**
-   * Sets the image used for rendering this Sprite
+   * Gets the id of the shared image used for rendering this Sprite (see {@link TextureCache})
    *
-   * @param imageSource Path to the image to set
+   * @return The id of the image, or -1 if the image does not come from the texture cache
+   */
+  public int getTextureId() {
+    return textureId;
+  }
+
+  /**
+   * Acquires the shared image representing this Sprite from the texture cache, unless it is
+   * already loaded or the Sprite is part of a headless level. Must be called on the rendering
+   * thread.
    */
-  private void setImage(String imageSource) {
+  public void loadImage() {
+    if (image != null || (level != null && level.isHeadless())) {
+      return;
+    }
     try {
-      image = new Image(imageSource);
+      image = TextureCache.acquire(imageSource, flipped);
     } catch (Exception ex) {
       ex.printStackTrace();
+      return;
+    }
+    textureId = TextureCache.getId(imageSource, flipped);
+    store.setSize(entity, image.getWidth(), image.getHeight());
+  }
+
+  /**
+   * Sizes the Sprite from the metadata of an image without loading it, used by headless levels and
+   * by levels prepared off the rendering thread
+   *
+   * @param imageSource Path to the image describing the Sprite's dimensions
+   */
+  private void setDimensions(String imageSource) {
+    try {
+      int[] size = ImageMetadata.getDimensions(imageSource);
+      store.setSize(entity, size[0], size[1]);
+    } catch (Exception ex) {
+      ex.printStackTrace();
+    }
+  }
+
+  /**
+   * Specifies whether the Sprite is drawn with its image mirrored horizontally
+   *
+   * @return True if the image is flipped, else False
+   */
+  public boolean isFlipped() {
+    return flipped;
+  }
+
+  /**
+   * Switches between the normal and horizontally flipped variant of the shared image
+   *
+   * @param flipped True to draw the flipped variant, else False
+   */
+  public void setFlipped(boolean flipped) {
+    if (this.flipped == flipped) {
+      return;
+    }
+    if (image != null) {
+      try {
+        Image newImage = TextureCache.acquire(imageSource, flipped);
+        TextureCache.release(imageSource, this.flipped);
+        image = newImage;
+        textureId = TextureCache.getId(imageSource, flipped);
+      } catch (Exception ex) {
+        ex.printStackTrace();
+        return;
+      }
+    }
+    this.flipped = flipped;
+  }
+
+  /** Releases the shared image held by this Sprite, called once the Sprite is discarded */
+  public void releaseImage() {
+    if (image == null) {
+      return;
+    }
+    TextureCache.release(imageSource, flipped);
+    image = null;
+    textureId = -1;
+  }
+
+  /**
+   * Writes the state held by the Sprite itself, beyond what its EntityStore holds. Subclasses with
+   * state of their own write it after calling this method.
+   *
+   * @param out The buffer to write to
+   */
+  public void writeState(StateBuffer out) {
+    out.writeBoolean(flipped);
+  }
+
+  /**
+   * Restores the state written by {@link #writeState(StateBuffer)}, once the EntityStore of the
+   * Sprite has been restored. Subclasses read their own state after calling this method.
+   *
+   * @param in The buffer to read from
+   */
+  public void readState(StateBuffer in) {
+    setFlipped(in.readBoolean());
+    if (hitBox != null) {
+      hitBox.setX(store.getX(entity));
+      hitBox.setY(store.getY(entity));
     }
-    height = image.getHeight();
-    width = image.getWidth();
   }
 
   /**
@@ -115,7 +254,48 @@ public class Sprite {
    * @return Position object specifying the (x, y) coordinates of Sprite center
    */
   public Position getLocation() {
-    return centerPosition;
+    float x = store.getX(entity);
+    float y = store.getY(entity);
+    if (location == null || location.getX() != x || location.getY() != y) {
+      location = new Position(x, y);
+    }
+    return location;
+  }
+
+  /**
+   * Gets the x coordinate of the center of the Sprite without creating a Position
+   *
+   * @return The center x coordinate
+   */
+  public float getX() {
+    return store.getX(entity);
+  }
+
+  /**
+   * Gets the y coordinate of the center of the Sprite without creating a Position
+   *
+   * @return The center y coordinate
+   */
+  public float getY() {
+    return store.getY(entity);
+  }
+
+  /**
+   * Gets the store holding the state of this Sprite
+   *
+   * @return The EntityStore of the Sprite's level
+   */
+  public EntityStore getEntityStore() {
+    return store;
+  }
+
+  /**
+   * Gets the slot of this Sprite in its EntityStore
+   *
+   * @return The entity index of the Sprite
+   */
+  public int getEntityIndex() {
+    return entity;
   }
 
   /**
@@ -124,12 +304,48 @@ public class Sprite {
    * @param centerLoc The position to center the base.Sprite around
    */
   public void setLocation(Position centerLoc) {
-    centerPosition = centerLoc;
+    location = centerLoc;
+    setLocation(centerLoc.getX(), centerLoc.getY());
+  }
+
+  /**
+   * Change the location of the Sprite without creating a Position. Subclasses that react to
+   * movement override this method, since every other way of moving the Sprite goes through it.
+   *
+   * @param x The x coordinate to center the Sprite around
+   * @param y The y coordinate to center the Sprite around
+   */
+  public void setLocation(float x, float y) {
+    store.setPosition(entity, x, y);
+    syncLocation();
+    checkOutOfBounds();
+  }
+
+  /**
+   * Draws the Sprite at its current location from the next frame on, rather than blending from
+   * where it was at the start of the simulation step. Called after the Sprite teleports.
+   */
+  public void skipInterpolation() {
+    store.skipInterpolation(entity);
+  }
+
+  /**
+   * Moves the hitbox and spatial index entry of the Sprite to the position held in its
+   * EntityStore, called after the store has moved the Sprite directly
+   */
+  public void syncLocation() {
     if (hitBox != null) {
-      hitBox.setX(centerLoc.getX());
-      hitBox.setY(centerLoc.getY());
+      hitBox.setX(store.getX(entity));
+      hitBox.setY(store.getY(entity));
+    }
+    updateSpatialIndex();
+  }
+
+  /** Notifies the level's Sprite Manager that the area covered by this Sprite has changed */
+  private void updateSpatialIndex() {
+    if (level != null && level.getSpriteManager() != null) {
+      level.getSpriteManager().updateSpriteLocation(this);
     }
-    checkOutOfBounds();
   }
 
   /**
@@ -138,9 +354,25 @@ public class Sprite {
    * @return new Position class with pre-set (x,y) anchor location
    */
   public Position getBottomLeftAnchor() {
-    float anchorX = centerPosition.getX() - width / 2;
-    float anchorY = centerPosition.getY() - height / 2;
-    return new Position(anchorX, anchorY);
+    return new Position(getAnchorX(), getAnchorY());
+  }
+
+  /**
+   * Gets the x coordinate of the anchor pixel of the Sprite without creating a Position
+   *
+   * @return The x coordinate of the left edge of the Sprite's image
+   */
+  public float getAnchorX() {
+    return store.getX(entity) - getWidth() / 2;
+  }
+
+  /**
+   * Gets the y coordinate of the anchor pixel of the Sprite without creating a Position
+   *
+   * @return The y coordinate of the top edge of the Sprite's image
+   */
+  public float getAnchorY() {
+    return store.getY(entity) - getHeight() / 2;
   }
 
   /**
@@ -150,10 +382,37 @@ public class Sprite {
    * @param deltaY The number of pixels to move in the y direction
    */
   public void setLocationDelta(float deltaX, float deltaY) {
-    float newX = centerPosition.getX() + deltaX;
-    float newY = centerPosition.getY() + deltaY;
-    Position newPos = new Position(newX, newY);
-    setLocation(newPos);
+    setLocation(store.getX(entity) + deltaX, store.getY(entity) + deltaY);
+  }
+
+  /**
+   * Gets the x coordinate the anchor pixel is drawn at, blended between the previous and current
+   * simulation step
+   *
+   * @return The x coordinate of the left edge of the drawn image
+   */
+  public float getDrawAnchorX() {
+    return store.getDrawX(entity) - getWidth() / 2;
+  }
+
+  /**
+   * Gets the y coordinate the anchor pixel is drawn at, blended between the previous and current
+   * simulation step
+   *
+   * @return The y coordinate of the top edge of the drawn image
+   */
+  public float getDrawAnchorY() {
+    return store.getDrawY(entity) - getHeight() / 2;
+  }
+
+  /**
+   * Specifies whether the Sprite never moves or changes appearance on its own, in which case it can
+   * be drawn into the cached static layer of its level
+   *
+   * @return True if the Sprite is static, else False
+   */
+  public boolean isStatic() {
+    return !(this instanceof TimeSupport);
   }
 
   /**
@@ -162,7 +421,7 @@ public class Sprite {
    * @return floating point width of the Sprite
    */
   public float getWidth() {
-    return width;
+    return store.getWidth(entity);
   }
 
   /**
@@ -171,7 +430,7 @@ public class Sprite {
    * @return floating point height of the Sprite
    */
   public float getHeight() {
-    return height;
+    return store.getHeight(entity);
   }
 
   /**
@@ -180,11 +439,14 @@ public class Sprite {
    * @return True if out of bounds, False if inside bounds
    */
   public boolean checkOutOfBounds() {
-    BoundingBox tempBox = hitBox == null ? new BoundingBox(image, centerPosition) : hitBox;
-    boolean tooHigh = tempBox.getBottom() > App.getScreenHeight();
-    boolean tooLow = tempBox.getTop() < 0;
-    boolean tooFarLeft = tempBox.getRight() < 0;
-    boolean tooFarRight = tempBox.getLeft() > App.getScreenWidth();
+    BoundingBox box = getHitBox();
+    if (box == null) {
+      return store.isOutOfBounds(entity);
+    }
+    boolean tooHigh = box.getBottom() > App.getScreenHeight();
+    boolean tooLow = box.getTop() < 0;
+    boolean tooFarLeft = box.getRight() < 0;
+    boolean tooFarRight = box.getLeft() > store.getWrapWidth();
     return tooHigh || tooLow || tooFarLeft || tooFarRight;
   }
 
@@ -194,11 +456,53 @@ public class Sprite {
    * @param g The Graphics object to render the base.Sprite on
    */
   public void render(Graphics g) {
-    g.drawImage(image, getBottomLeftAnchor().getX(), getBottomLeftAnchor().getY());
+    if (image == null) {
+      return;
+    }
+    g.drawImage(image, getDrawAnchorX(), getDrawAnchorY());
+  }
+
+  /**
+   * Draws the Sprite's image as part of a batch. The image must already be bound through {@link
+   * Image#startUse()}.
+   */
+  public void renderEmbedded() {
+    image.drawEmbedded(getDrawAnchorX(), getDrawAnchorY(), image.getWidth(), image.getHeight());
+  }
+
+  /**
+   * Gets the layer the Sprite is drawn on, layers with a higher number are drawn on top
+   *
+   * @return One of the RENDER_LAYER constants
+   */
+  public int getRenderLayer() {
+    return isStatic() ? RENDER_LAYER_TILES : RENDER_LAYER_MOVERS;
   }
 
   /**
-   * Determines whether two Sprites are of the same 'type'
+   * Specifies whether the Sprite should currently be drawn
+   *
+   * @return True if the Sprite is visible, else False
+   */
+  public boolean isVisible() {
+    return true;
+  }
+
+  /**
+   * Specifies whether the Sprite is fully drawn by {@link #renderEmbedded()}, allowing it to be
+   * batched with other Sprites sharing its image. Sprites that draw more than their image must
+   * return False so that {@link #render(Graphics)} is used instead.
+   *
+   * @return True if the Sprite can be batched, else False
+   */
+  public boolean isBatchable() {
+    return true;
+  }
+
+  /**
+   * Determines whether two Sprites are the same entity. The entity index is a stable id that is
+   * unique within the level's EntityStore, so Sprites sharing a name (e.g. two extra lives) are
+   * never mistaken for one another.
    *
    * @see java.lang.Object#equals(java.lang.Object)
    */
@@ -207,7 +511,18 @@ public class Sprite {
     if (!(obj instanceof Sprite)) {
       return false;
     }
-    return obj.toString().equals(this.toString());
+    Sprite other = (Sprite) obj;
+    return other.store == store && other.entity == entity;
+  }
+
+  /**
+   * Hashes the Sprite by its entity index, consistently with {@link #equals(Object)}
+   *
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    return entity;
   }
 
   /**
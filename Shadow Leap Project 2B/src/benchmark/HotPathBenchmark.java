@@ -0,0 +1,382 @@
+package benchmark;
+
+import base.Driver;
+import base.Player;
+import base.Sprite;
+import core.App;
+import core.Level;
+import core.LevelHost;
+import core.EntityStore;
+import core.SpriteAssetManager;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+/**
+ * Measures the cost of the per-frame hot paths on headless levels: the real level files as well as
+ * synthetic levels scaled up to tens of thousands of Sprites. For every benchmark the average time
+ * per operation and the bytes allocated per operation (as counted by the JVM for the benchmark
+ * thread) are reported. Runs on any JVM without a display:
+ *
+ * <pre>java -cp bin:lib/* benchmark.HotPathBenchmark [syntheticSize ...]</pre>
+ *
+ * <p>With {@value #CHECK_ALLOCATIONS_FLAG} as the first argument it instead verifies that the
+ * per-frame update and collision paths of levels 0 and 1 allocate nothing in steady state, exiting
+ * with a non-zero status if any of them does. With {@value #CHECK_SWEEPS_FLAG} it instead verifies,
+ * with integrated and with analytic motion, that every step a moving Sprite takes on screen is
+ * swept for collisions rather than mistaken for a jump.
+ */
+public class HotPathBenchmark implements LevelHost {
+  /** The frame time used when stepping levels (milliseconds) */
+  private static final int FRAME_DELTA = 16;
+  /** The number of warm-up iterations run before measuring */
+  private static final int WARMUP_ITERATIONS = 5;
+  /** The number of measured iterations */
+  private static final int MEASUREMENT_ITERATIONS = 10;
+  /** The length of a single iteration (nanoseconds) */
+  private static final long ITERATION_NANOS = 200_000_000L;
+  /** The largest number of operations performed between clock reads */
+  private static final int MAX_BATCH_SIZE = 1024;
+  /** The argument selecting the allocation check instead of the benchmarks */
+  private static final String CHECK_ALLOCATIONS_FLAG = "--check-allocations";
+  /** The argument selecting the sweep check instead of the benchmarks */
+  private static final String CHECK_SWEEPS_FLAG = "--check-sweeps";
+  /** The number of frames whose steps are checked for sweeps */
+  private static final int SWEEP_CHECK_FRAMES = 20_000;
+  /**
+   * The number of frames played before counting allocations (about 5 minutes of play). By then the
+   * JIT has settled and the spatial index has reached its working size.
+   */
+  private static final int ALLOCATION_WARMUP_FRAMES = 20_000;
+  /** The number of frames whose allocations are counted */
+  private static final int ALLOCATION_CHECK_FRAMES = 20_000;
+  /**
+   * The number of counted frames allowed to allocate. Reused buffers and index lanes may still grow
+   * to a new high-water mark now and then, while garbage created by the frame itself shows up in a
+   * large share of the frames.
+   */
+  private static final int ALLOCATING_FRAME_TOLERANCE = 10;
+  /** The Sprite counts of the synthetic levels measured by default */
+  private static final int[] DEFAULT_SYNTHETIC_SIZES = {10_000, 100_000};
+  /** Counts bytes allocated by the benchmark thread */
+  private static final com.sun.management.ThreadMXBean threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+  /** Consumes benchmark results so that they can not be optimised away */
+  private long sink;
+
+  /**
+   * Runs every benchmark on levels 0 and 1 and on the synthetic levels
+   *
+   * @param args Optional Sprite counts of the synthetic levels to measure
+   * @throws IOException If a level file could not be read
+   */
+  public static void main(String[] args) throws IOException {
+    /* level state changes log at INFO, which would dominate the measurements and allocate */
+    LogManager.getLogManager().reset();
+    Logger.getLogger("").setLevel(java.util.logging.Level.OFF);
+    if (args.length > 0 && args[0].equals(CHECK_ALLOCATIONS_FLAG)) {
+      boolean allocationFree = true;
+      for (int levelNumber = 0; levelNumber < App.getNumberOfWorlds(); levelNumber++) {
+        allocationFree &= new HotPathBenchmark().checkAllocations(levelNumber);
+      }
+      System.exit(allocationFree ? 0 : 1);
+    }
+    if (args.length > 0 && args[0].equals(CHECK_SWEEPS_FLAG)) {
+      boolean swept = true;
+      for (int levelNumber = 0; levelNumber < App.getNumberOfWorlds(); levelNumber++) {
+        swept &= new HotPathBenchmark().checkSweeps(levelNumber, false);
+        swept &= new HotPathBenchmark().checkSweeps(levelNumber, true);
+      }
+      System.exit(swept ? 0 : 1);
+    }
+    int[] syntheticSizes = DEFAULT_SYNTHETIC_SIZES;
+    if (args.length > 0) {
+      syntheticSizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        syntheticSizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+    HotPathBenchmark benchmark = new HotPathBenchmark();
+    System.out.println(
+        String.format("%-16s %-45s %14s %12s", "Level", "Benchmark", "ns/op", "B/op"));
+    for (int levelNumber = 0; levelNumber < App.getNumberOfWorlds(); levelNumber++) {
+      benchmark.runAll(levelNumber + ".lvl", readLevel(levelNumber), App.getScreenWidth());
+    }
+    List<String> template = readLevel(0);
+    for (int size : syntheticSizes) {
+      List<String> levelData = scaleLevel(template, size);
+      /* each copy of the template wraps around in its own screen width */
+      int copies = levelData.size() / template.size();
+      benchmark.runAll(size + " sprites", levelData, copies * App.getScreenWidth());
+    }
+  }
+
+  /**
+   * Reads the lines of a level file
+   *
+   * @param levelNumber The number of the level
+   * @return The lines of the level file
+   * @throws IOException If the level file could not be read
+   */
+  private static List<String> readLevel(int levelNumber) throws IOException {
+    return Files.readAllLines(Paths.get("assets", "levels", levelNumber + ".lvl"));
+  }
+
+  /**
+   * Builds a synthetic level by repeating a level side by side until it holds enough Sprites. The
+   * level must be made as wide as all of its copies (see {@link EntityStore#setWrapWidth(float)}),
+   * or the movers of every copy would wrap around onto the screen and pile up there.
+   *
+   * @param template The lines of the level to repeat
+   * @param size The minimum number of Sprites in the synthetic level
+   * @return The lines of the synthetic level
+   */
+  private static List<String> scaleLevel(List<String> template, int size) {
+    List<String> lines = new ArrayList<>(size + template.size());
+    for (int copy = 0; lines.size() < size; copy++) {
+      float offset = copy * App.getScreenWidth();
+      for (String line : template) {
+        String[] assetInfo = line.split(",");
+        assetInfo[1] = Float.toString(Float.parseFloat(assetInfo[1]) + offset);
+        lines.add(String.join(",", assetInfo));
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Runs every benchmark against a fresh copy of a level
+   *
+   * @param name The name of the level to report
+   * @param levelData The lines describing the level
+   * @param wrapWidth The width of the area the level's Sprites wrap around in
+   */
+  private void runAll(String name, List<String> levelData, float wrapWidth) {
+    Level updatedLevel = createLevel(levelData, wrapWidth);
+    run(name, "Level.update", () -> updatedLevel.update(FRAME_DELTA));
+    Level parallelLevel = createLevel(levelData, wrapWidth);
+    parallelLevel.setParallelUpdate(ForkJoinPool.commonPool());
+    run(name, "Level.update (lanes in parallel)", () -> parallelLevel.update(FRAME_DELTA));
+    /* queries run on an untouched copy so the Player is still at its start position */
+    SpriteAssetManager manager = createLevel(levelData, wrapWidth).getSpriteManager();
+    Player player = manager.getPlayer();
+    run(
+        name,
+        "SpriteAssetManager.getIntersectingSprites",
+        () -> sink += manager.getIntersectingSprites(player).size());
+    run(name, "Player.checkCollision", player::checkCollision);
+    Driver driver = null;
+    for (Sprite sprite : manager.getSpriteMap()) {
+      if (sprite instanceof Driver) {
+        driver = (Driver) sprite;
+        break;
+      }
+    }
+    if (driver != null) {
+      Driver tickedDriver = driver;
+      run(name, "Driver.onTimeTick", () -> tickedDriver.onTimeTick(FRAME_DELTA));
+    }
+  }
+
+  /**
+   * Builds a headless level to benchmark
+   *
+   * @param levelData The lines describing the level
+   * @param wrapWidth The width of the area the level's Sprites wrap around in
+   * @return The level
+   */
+  private Level createLevel(List<String> levelData, float wrapWidth) {
+    Level level = new Level(0, levelData, true, this);
+    level.getSpriteManager().getEntityStore().setWrapWidth(wrapWidth);
+    return level;
+  }
+
+  /**
+   * Counts the bytes allocated by the per-frame paths of a level once it has warmed up, printing
+   * the total
+   *
+   * @param levelNumber The number of the level to check
+   * @return True if the frames do not allocate in steady state, else False
+   * @throws IOException If the level file could not be read
+   */
+  private boolean checkAllocations(int levelNumber) throws IOException {
+    Level level = new Level(0, readLevel(levelNumber), true, this);
+    List<Sprite> spriteMap = level.getSpriteManager().getSpriteMap();
+    Runnable frame = createFrame(level);
+    for (int i = 0; i < ALLOCATION_WARMUP_FRAMES; i++) {
+      frame.run();
+    }
+    long threadId = Thread.currentThread().getId();
+    long allocated = 0;
+    int eventFrames = 0;
+    int allocatingFrames = 0;
+    for (int i = 0; i < ALLOCATION_CHECK_FRAMES; i++) {
+      int sprites = spriteMap.size();
+      long before = threads.getThreadAllocatedBytes(threadId);
+      frame.run();
+      long frameAllocated = threads.getThreadAllocatedBytes(threadId) - before;
+      /* frames that spawn or remove a Sprite (extra lives) are events, not steady state */
+      if (spriteMap.size() != sprites) {
+        eventFrames++;
+      } else if (frameAllocated > 0) {
+        allocated += frameAllocated;
+        allocatingFrames++;
+      }
+    }
+    boolean allocationFree = allocatingFrames <= ALLOCATING_FRAME_TOLERANCE;
+    System.out.println(
+        String.format(
+            "%-16s %-45s %14d B %s",
+            levelNumber + ".lvl",
+            String.format(
+                "%d of %d steady frames allocated",
+                allocatingFrames, ALLOCATION_CHECK_FRAMES - eventFrames),
+            allocated,
+            allocationFree ? "OK" : "ALLOCATES"));
+    return allocationFree;
+  }
+
+  /**
+   * Plays a level and counts the steps of moving Sprites that are not swept for collisions,
+   * printing the total. Only steps taken on screen are counted, where no Sprite ever wraps around.
+   *
+   * @param levelNumber The number of the level to check
+   * @param analyticMotion True to compute positions analytically, False to integrate them
+   * @return True if every counted step is swept, else False
+   * @throws IOException If the level file could not be read
+   */
+  private boolean checkSweeps(int levelNumber, boolean analyticMotion) throws IOException {
+    Level level = new Level(0, readLevel(levelNumber), true, this);
+    level.setAnalyticMotion(analyticMotion);
+    EntityStore store = level.getSpriteManager().getEntityStore();
+    int moving = EntityStore.FLAG_ACTIVE | EntityStore.FLAG_LINEAR;
+    long steps = 0;
+    long missed = 0;
+    for (int i = 0; i < SWEEP_CHECK_FRAMES; i++) {
+      level.update(FRAME_DELTA);
+      for (int entity = 0; entity < store.size(); entity++) {
+        float x = store.getX(entity);
+        if (store.hasFlags(entity, moving)
+            && store.getVelocityX(entity) != 0
+            && x > 0
+            && x < App.getScreenWidth()) {
+          steps++;
+          if (store.getStepDeltaX(entity) == 0) {
+            missed++;
+          }
+        }
+      }
+    }
+    System.out.println(
+        String.format(
+            "%-16s %-45s %14d %s",
+            levelNumber + ".lvl",
+            String.format(
+                "%d of %d steps unswept (%s motion)",
+                missed, steps, analyticMotion ? "analytic" : "integrated"),
+            missed,
+            missed == 0 ? "OK" : "MISSED"));
+    return missed == 0;
+  }
+
+  /**
+   * Builds a single frame of the per-frame paths checked for allocations: a level update followed
+   * by the Player's collision queries and a Driver tick
+   *
+   * @param level The level to play
+   * @return The operation playing one frame
+   */
+  private Runnable createFrame(Level level) {
+    SpriteAssetManager manager = level.getSpriteManager();
+    Player player = manager.getPlayer();
+    List<Sprite> intersecting = new ArrayList<>();
+    Driver driver = null;
+    for (Sprite sprite : manager.getSpriteMap()) {
+      if (sprite instanceof Driver) {
+        driver = (Driver) sprite;
+        break;
+      }
+    }
+    Driver tickedDriver = driver;
+    return () -> {
+      level.update(FRAME_DELTA);
+      player.checkCollision();
+      player.checkForDrivers();
+      intersecting.clear();
+      manager.collectIntersectingSprites(player, (Predicate<Sprite>) null, intersecting);
+      if (tickedDriver != null) {
+        tickedDriver.onTimeTick(FRAME_DELTA);
+      }
+    };
+  }
+
+  /**
+   * Measures a single operation, printing its average time and allocation per operation
+   *
+   * @param levelName The name of the level being measured
+   * @param benchmarkName The name of the operation being measured
+   * @param operation The operation to measure
+   */
+  private void run(String levelName, String benchmarkName, Runnable operation) {
+    long threadId = Thread.currentThread().getId();
+    /* batches operations between clock reads, but never for longer than about a millisecond */
+    long calibrationStart = System.nanoTime();
+    operation.run();
+    long calibrationNanos = Math.max(1, System.nanoTime() - calibrationStart);
+    int batchSize = (int) Math.max(1, Math.min(MAX_BATCH_SIZE, 1_000_000L / calibrationNanos));
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      iterate(operation, batchSize);
+    }
+    long operations = 0;
+    long elapsed = 0;
+    long allocated = threads.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+      long start = System.nanoTime();
+      operations += iterate(operation, batchSize);
+      elapsed += System.nanoTime() - start;
+    }
+    allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+    System.out.println(
+        String.format(
+            "%-16s %-45s %14.1f %12.1f",
+            levelName,
+            benchmarkName,
+            (double) elapsed / operations,
+            (double) allocated / operations));
+  }
+
+  /**
+   * Repeats an operation for the length of one iteration
+   *
+   * @param operation The operation to repeat
+   * @param batchSize The number of operations performed between clock reads
+   * @return The number of times the operation was performed
+   */
+  private long iterate(Runnable operation, int batchSize) {
+    long operations = 0;
+    long end = System.nanoTime() + ITERATION_NANOS;
+    do {
+      for (int i = 0; i < batchSize; i++) {
+        operation.run();
+      }
+      operations += batchSize;
+    } while (System.nanoTime() < end);
+    return operations;
+  }
+
+  /** The benchmark keeps playing the same level */
+  @Override
+  public void onLevelFinished(Level level) {}
+
+  /** The benchmark keeps playing the same level */
+  @Override
+  public void onGameOver(Level level) {}
+}
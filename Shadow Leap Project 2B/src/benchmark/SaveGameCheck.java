@@ -0,0 +1,161 @@
+package benchmark;
+
+import core.App;
+import core.Level;
+import core.LevelHost;
+import core.SaveGame;
+import org.newdawn.slick.Input;
+import utilities.SeededRandom;
+import utilities.StateBuffer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.LogManager;
+
+/**
+ * Checks that saved games restore the levels they were saved from. Every world is played with
+ * random key presses, saved and resumed at regular intervals, and the resumed level must hold the
+ * same state as the saved one and play on identically to it. Also compares the time taken to
+ * resume a level with the time taken to build it from its level file. Runs on any JVM without a
+ * display, exiting with a non-zero status if any save fails:
+ *
+ * <pre>java -cp bin:lib/* benchmark.SaveGameCheck [steps]</pre>
+ */
+public class SaveGameCheck implements LevelHost {
+  /** The number of simulation steps each world is played for by default */
+  private static final int DEFAULT_STEPS = 6000;
+  /** The number of simulation steps played between saves */
+  private static final int SAVE_INTERVAL = 500;
+  /** The number of times each world is built and resumed when timing them */
+  private static final int TIMING_REPEATS = 200;
+  /** The keys pressed, hopping up more often than in any other way */
+  private static final int[] HOPS = {
+    Input.KEY_UP, Input.KEY_UP, Input.KEY_LEFT, Input.KEY_RIGHT, Input.KEY_DOWN
+  };
+
+  /**
+   * Saves and resumes every world
+   *
+   * @param args Optionally the number of simulation steps to play each world for
+   * @throws IOException If a saved game could not be written or read
+   */
+  public static void main(String[] args) throws IOException {
+    LogManager.getLogManager().reset();
+    int steps = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_STEPS;
+    Path file = Files.createTempFile("shadowleap", ".sav");
+    SaveGameCheck check = new SaveGameCheck();
+    int failures = 0;
+    try {
+      for (int world = 0; world < App.getNumberOfWorlds(); world++) {
+        failures += check.checkWorld(world, steps, file);
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+    System.out.println(failures == 0 ? "OK" : failures + " saves failed");
+    System.exit(failures == 0 ? 0 : 1);
+  }
+
+  /**
+   * Plays a world, saving and resuming it at regular intervals, and times resuming it
+   *
+   * @param world The number of the world to check
+   * @param steps The number of simulation steps to play the world for
+   * @param file The file to save the world to
+   * @return The number of saves that did not restore the level
+   * @throws IOException If a saved game could not be written or read
+   */
+  private int checkWorld(int world, int steps, Path file) throws IOException {
+    Level level = new Level(world, true, world, this);
+    SeededRandom keys = new SeededRandom(world);
+    int failures = 0;
+    for (int step = SAVE_INTERVAL; step <= steps; step += SAVE_INTERVAL) {
+      play(level, keys, SAVE_INTERVAL);
+      SaveGame.save(level, file);
+      Level resumed = SaveGame.load(file, true, this);
+      boolean sameState = isSameState(level.snapshot(), resumed.snapshot());
+      /* both play on with the same key presses */
+      long keyState = keys.getState();
+      play(level, keys, SAVE_INTERVAL);
+      keys.setState(keyState);
+      play(resumed, keys, SAVE_INTERVAL);
+      boolean samePlay = level.getStateDigest() == resumed.getStateDigest();
+      if (!sameState || !samePlay) {
+        failures++;
+        System.out.println(
+            String.format(
+                "World %d, step %d: %s", world, step, sameState ? "diverged" : "not restored"));
+      }
+    }
+    System.out.println(
+        String.format(
+            "World %d: %d saves of %d bytes, lives %d, %d holes filled",
+            world,
+            steps / SAVE_INTERVAL,
+            Files.size(file),
+            level.getSpriteManager().getPlayer().getLives(),
+            level.getFilledHoleCount()));
+    long start = System.nanoTime();
+    for (int i = 0; i < TIMING_REPEATS; i++) {
+      new Level(world, true, world, this);
+    }
+    long built = System.nanoTime();
+    for (int i = 0; i < TIMING_REPEATS; i++) {
+      SaveGame.load(file, true, this);
+    }
+    long loaded = System.nanoTime();
+    System.out.println(
+        String.format(
+            "World %d: new Level %.0f us, resuming a saved game %.0f us",
+            world,
+            (built - start) / 1e3 / TIMING_REPEATS,
+            (loaded - built) / 1e3 / TIMING_REPEATS));
+    return failures;
+  }
+
+  /**
+   * Plays a level with random key presses
+   *
+   * @param level The level to play
+   * @param keys Chooses the key presses
+   * @param steps The number of simulation steps to play for
+   */
+  private static void play(Level level, SeededRandom keys, int steps) {
+    for (int i = 0; i < steps; i++) {
+      if (keys.nextInt(25) == 0) {
+        level.onKeyPressed(HOPS[keys.nextInt(HOPS.length)], (char) 0);
+      }
+      level.update(App.getSimulationStep());
+    }
+  }
+
+  /**
+   * Compares two snapshots word by word
+   *
+   * @param first A snapshot
+   * @param second Another snapshot
+   * @return True if both hold the same words, else False
+   */
+  private static boolean isSameState(StateBuffer first, StateBuffer second) {
+    if (first.size() != second.size()) {
+      return false;
+    }
+    first.rewind();
+    second.rewind();
+    for (int i = 0; i < first.size(); i++) {
+      if (first.readInt() != second.readInt()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** The check keeps playing the same level */
+  @Override
+  public void onLevelFinished(Level level) {}
+
+  /** The check keeps playing the same level */
+  @Override
+  public void onGameOver(Level level) {}
+}
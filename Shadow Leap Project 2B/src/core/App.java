@@ -6,6 +6,17 @@ import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Input;
 import org.newdawn.slick.SlickException;
+import simulation.InputRecorder;
+import utilities.SeededRandom;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Main entry point for the Slick2D application
@@ -13,7 +24,7 @@ import org.newdawn.slick.SlickException;
  * @author Rohyl Joshi Designed for Project 2B of Object Oriented Software Development, Semester 2 -
  *     2018
  */
-public class App extends BasicGame {
+public class App extends BasicGame implements LevelHost {
 
   /** Describes the number of pixels the screen can render horizontally */
   private static final int SCREEN_WIDTH = 1024;
@@ -26,14 +37,58 @@ public class App extends BasicGame {
   /** Represents the level to run at the start of the game */
   private static final int SPAWN_WORLD_NUM = 0;
   private static final String GAME_TITLE = "Shadow Leap";
+  /** The length of a single simulation step (milliseconds) */
+  private static final int SIMULATION_STEP = 10;
+  /**
+   * The most simulation steps run to catch up in a single frame. Any time left over after that is
+   * dropped, so a long stall slows the game down instead of freezing it with catch-up work.
+   */
+  private static final int MAX_STEPS_PER_FRAME = 5;
+  /** The number of sprites of a preloaded level whose images are loaded per frame */
+  private static final int TEXTURE_LOADS_PER_FRAME = 32;
+  /** Builds the next world in the background while the current one is played */
+  private final ExecutorService preloader =
+      Executors.newSingleThreadExecutor(
+          task -> {
+            Thread thread = new Thread(task, "level-preloader");
+            thread.setDaemon(true);
+            return thread;
+          });
   /** Flag that indicates whether the game should continue running */
-  private static boolean keepRunning = true;
+  private boolean keepRunning = true;
   /** Represents the world to be currently rendered */
-  private static Level currentLevel;
+  private Level currentLevel;
+  /** The next world, being prepared in the background, null if there is no next world */
+  private Future<Level> nextLevel;
+  /** Frame time that has not been simulated yet (milliseconds) */
+  private int unsimulatedTime;
+  /** The seed every world derives its random number generator from */
+  private final long seed;
+  /** Records the key presses of the game so it can be replayed, null if not recording */
+  private InputRecorder recorder;
+  /** The number of simulation steps run so far */
+  private long simulatedSteps;
+  /** The file the game is saved to when the window is closed, null to not save the game */
+  private final Path saveFile;
 
   /** Initializes the core.App class */
   public App() {
+    this(SeededRandom.randomSeed(), null, null);
+  }
+
+  /**
+   * Initializes the core.App class with a reproducible game
+   *
+   * @param seed The seed of the game
+   * @param recorder Records the key presses of the game, or null to not record
+   * @param saveFile The file to resume the game from if it exists, and to save the game to when
+   *     the window is closed, or null to not save the game
+   */
+  public App(long seed, InputRecorder recorder, Path saveFile) {
     super(GAME_TITLE);
+    this.seed = seed;
+    this.recorder = recorder;
+    this.saveFile = saveFile;
   }
 
   /**
@@ -63,32 +118,194 @@ public class App extends BasicGame {
     return TILE_LENGTH;
   }
 
+  /**
+   * Gets the fixed length of a simulation step
+   *
+   * @return The simulation step in milliseconds
+   */
+  public static int getSimulationStep() {
+    return SIMULATION_STEP;
+  }
+
+  /**
+   * Gets the number of worlds in the game
+   *
+   * @return The number of playable levels
+   */
+  public static int getNumberOfWorlds() {
+    return NUMBER_OF_WORLDS;
+  }
+
   /**
    * Start-up method. Creates the game and runs it.
    *
-   * @param args Command-line arguments (ignored).
+   * @param args Command-line arguments: optionally "--seed" followed by the seed of the game,
+   *     "--record" followed by the file to record the game to for {@link
+   *     simulation.ReplayEngine}, and "--save" followed by the file to resume the game from and
+   *     save it to on exit.
    * @throws SlickException Error running game.
+   * @throws IOException Error creating the recording.
    */
-  public static void main(String[] args) throws SlickException {
-    AppGameContainer app = new AppGameContainer(new App());
+  public static void main(String[] args) throws SlickException, IOException {
+    long seed = SeededRandom.randomSeed();
+    String recordingPath = null;
+    Path saveFile = null;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("--seed")) {
+        seed = Long.parseLong(args[i + 1]);
+      } else if (args[i].equals("--record")) {
+        recordingPath = args[i + 1];
+      } else if (args[i].equals("--save")) {
+        saveFile = Paths.get(args[i + 1]);
+      }
+    }
+    if (recordingPath != null && saveFile != null && Files.exists(saveFile)) {
+      /* a recording replays a game from its start, which a resumed game does not have */
+      System.err.println("Not recording, the game is resumed from " + saveFile);
+      recordingPath = null;
+    }
+    InputRecorder recorder =
+        recordingPath == null
+            ? null
+            : new InputRecorder(recordingPath, seed, SPAWN_WORLD_NUM, SIMULATION_STEP);
+    AppGameContainer app = new AppGameContainer(new App(seed, recorder, saveFile));
     app.setShowFPS(false);
     app.setDisplayMode(SCREEN_WIDTH, SCREEN_HEIGHT, false);
     app.start();
   }
 
   /** Signals to close game on next update */
-  public static void closeGame() {
+  public void closeGame() {
     keepRunning = false;
   }
 
+  /** Ends the recording, if any, with the state the game finished in */
+  private void finishRecording() {
+    if (recorder == null) {
+      return;
+    }
+    try {
+      recorder.finish(simulatedSteps, currentLevel.getStateDigest());
+      recorder.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    recorder = null;
+  }
+
+  /**
+   * Saves the game, if it has a save file, before the window is closed. A game that has ended
+   * discards its save file instead, so the next game starts afresh.
+   */
+  private void saveGame() {
+    if (saveFile == null) {
+      return;
+    }
+    try {
+      if (keepRunning) {
+        SaveGame.save(currentLevel, saveFile);
+      } else {
+        Files.deleteIfExists(saveFile);
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Finishes the recording and saves the game before the window is closed
+   *
+   * @return True, the window may always be closed
+   */
+  @Override
+  public boolean closeRequested() {
+    finishRecording();
+    saveGame();
+    return true;
+  }
+
   /** Make app change to the next currentLevel */
-  public static void nextWorld() {
-    int currentWorldNum = currentLevel.getLevelNumber();
-    if (currentWorldNum++ >= NUMBER_OF_WORLDS) {
-      App.closeGame();
+  public void nextWorld() {
+    int nextWorldNum = currentLevel.getLevelNumber() + 1;
+    if (nextWorldNum >= NUMBER_OF_WORLDS) {
+      closeGame();
+      return;
+    }
+    /* the new level is ready first so that shared textures stay cached across the switch */
+    Level previousLevel = currentLevel;
+    currentLevel = takePreloadedLevel(nextWorldNum);
+    previousLevel.dispose();
+    preloadNextWorld();
+  }
+
+  /** Starts preparing the world after the current one on the background thread */
+  private void preloadNextWorld() {
+    int nextWorldNum = currentLevel.getLevelNumber() + 1;
+    if (nextWorldNum >= NUMBER_OF_WORLDS) {
+      nextLevel = null;
       return;
     }
-    currentLevel = new Level(++currentWorldNum);
+    long worldSeed = SeededRandom.deriveSeed(seed, nextWorldNum);
+    nextLevel = preloader.submit(() -> Level.prepare(nextWorldNum, worldSeed, this));
+  }
+
+  /**
+   * Gets the preloaded level, waiting for it and finishing its texture loads if necessary. Falls
+   * back to building the level directly if preloading failed.
+   *
+   * @param levelNumber The number of the level to take
+   * @return The level, ready to be played and rendered
+   */
+  private Level takePreloadedLevel(int levelNumber) {
+    Level level = null;
+    if (nextLevel != null) {
+      try {
+        level = nextLevel.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        e.getCause().printStackTrace();
+      }
+    }
+    if (level == null || level.getLevelNumber() != levelNumber) {
+      return new Level(levelNumber, false, SeededRandom.deriveSeed(seed, levelNumber), this);
+    }
+    level.loadPendingTextures(Integer.MAX_VALUE);
+    return level;
+  }
+
+  /** Spreads the texture loads of the preloaded level over the frames of the current one */
+  private void loadPreloadedTextures() {
+    if (nextLevel == null || !nextLevel.isDone()) {
+      return;
+    }
+    try {
+      nextLevel.get().loadPendingTextures(TEXTURE_LOADS_PER_FRAME);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      /* reported when the level is taken */
+    }
+  }
+
+  /**
+   * Moves on to the next world once a level is complete
+   *
+   * @param level The level that has been completed
+   */
+  @Override
+  public void onLevelFinished(Level level) {
+    nextWorld();
+  }
+
+  /**
+   * Closes the game once the player has run out of lives
+   *
+   * @param level The level on which the game ended
+   */
+  @Override
+  public void onGameOver(Level level) {
+    closeGame();
   }
 
   /**
@@ -98,22 +315,46 @@ public class App extends BasicGame {
    */
   @Override
   public void init(GameContainer gc) {
-    currentLevel = new Level(SPAWN_WORLD_NUM);
+    if (saveFile != null && Files.exists(saveFile)) {
+      try {
+        currentLevel = SaveGame.load(saveFile, false, this);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    if (currentLevel == null) {
+      currentLevel =
+          new Level(SPAWN_WORLD_NUM, false, SeededRandom.deriveSeed(seed, SPAWN_WORLD_NUM), this);
+    }
+    preloadNextWorld();
   }
 
   /**
-   * Event that is called when a key is pressed
+   * Event that is called when a key is pressed. Key presses are ignored once the game has ended.
    *
    * @param key The ASCII value of the key pressed
    * @param c The ASCII character of the key pressed
    */
   @Override
   public void keyPressed(int key, char c) {
+    if (!keepRunning) {
+      return;
+    }
+    if (recorder != null) {
+      try {
+        recorder.record(simulatedSteps, key, c);
+      } catch (IOException e) {
+        e.printStackTrace();
+        recorder = null;
+      }
+    }
     currentLevel.onKeyPressed(key, c);
   }
 
   /**
-   * Update the game state for a frame.
+   * Update the game state for a frame. The level is always advanced in fixed simulation steps, as
+   * many as fit into the time passed, so that movement and collisions do not depend on the frame
+   * rate. The remainder is carried over to the next frame.
    *
    * @param gc The Slick game container object.
    * @param delta Time passed since last frame (milliseconds).
@@ -121,10 +362,23 @@ public class App extends BasicGame {
   @Override
   public void update(GameContainer gc, int delta) {
     if (!keepRunning) {
+      finishRecording();
+      saveGame();
       gc.exit();
     }
     Input input = gc.getInput();
-    currentLevel.update(input, delta);
+    unsimulatedTime += delta;
+    int steps = 0;
+    while (unsimulatedTime >= SIMULATION_STEP && steps < MAX_STEPS_PER_FRAME && keepRunning) {
+      currentLevel.update(input, SIMULATION_STEP);
+      unsimulatedTime -= SIMULATION_STEP;
+      simulatedSteps++;
+      steps++;
+    }
+    if (steps == MAX_STEPS_PER_FRAME) {
+      unsimulatedTime %= SIMULATION_STEP;
+    }
+    loadPreloadedTextures();
   }
 
   /**
@@ -135,6 +389,6 @@ public class App extends BasicGame {
    */
   @Override
   public void render(GameContainer gc, Graphics g) {
-    currentLevel.render(g);
+    currentLevel.render(g, (float) unsimulatedTime / SIMULATION_STEP);
   }
 }
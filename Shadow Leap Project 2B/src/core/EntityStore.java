@@ -0,0 +1,856 @@
+package core;
+
+import base.MovingSprite;
+import base.Sprite;
+import utilities.StateBuffer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Structure-of-arrays storage for the state of every Sprite on a level. Each Sprite owns one slot
+ * (its entity index) in parallel primitive columns holding its position, velocity, dimensions,
+ * flags and asset id; Sprite objects act as views over their slot. Slots are handed out in
+ * creation order and are never reused, so a Sprite keeps its slot for the lifetime of the level.
+ *
+ * <p>The store also keeps every position from the start of the current simulation step, so that
+ * rendering can blend between the previous and current step (see {@link #interpolate(float)}).
+ *
+ * <p>Optionally (see {@link #setAnalyticMotion(boolean)}), entities that only move horizontally at
+ * a constant velocity are not integrated at all. Their position is a pure function of where they
+ * were at a known time, their velocity, the time passed and the width of the screen, and is only
+ * computed when something reads it.
+ */
+public class EntityStore {
+  /** Flag set while the Sprite is part of the Sprite Map */
+  public static final int FLAG_ACTIVE = 1;
+  /** Flag set when the Sprite only moves at a constant velocity, moved by {@link #integrate} */
+  public static final int FLAG_LINEAR = 1 << 1;
+  /** Flag set when the Sprite jumped during the current simulation step, e.g. on respawning */
+  public static final int FLAG_JUMPED = 1 << 2;
+  /** Flag set when the Sprite was removed but has not been swept from the Sprite Map yet */
+  public static final int FLAG_REMOVED = 1 << 3;
+  /**
+   * How far beyond the fastest speed on record a step may go before it counts as a jump, which
+   * catches jumps made without {@link #skipInterpolation(int)} (e.g. a power-up shuffling along its
+   * log) while leaving room for rounding
+   */
+  private static final float JUMP_MARGIN = 1.5f;
+  /** Flag set on entities whose respawn a concurrent integration left to the calling thread */
+  private static final int FLAG_RESPAWN = 1 << 4;
+  /** Stores with fewer slots than this are integrated on the calling thread */
+  private static final int MIN_PARALLEL_INTEGRATE = 4096;
+  /** The number of slots moved by a single task of a concurrent integration */
+  private static final int INTEGRATE_SLICE = 2048;
+  /** The initial number of slots allocated */
+  private static final int INITIAL_CAPACITY = 256;
+  /** Interned asset ids, keyed by Sprite name */
+  private final Map<String, Integer> assetIds = new HashMap<>();
+  /** The number of slots handed out */
+  private int size;
+  /** Center coordinates of each Sprite */
+  private float[] x, y;
+  /** Center coordinates of each Sprite at the start of the current simulation step */
+  private float[] previousX, previousY;
+  /** Center coordinates each Sprite is drawn at, blended between the previous and current step */
+  private float[] drawX, drawY;
+  /** Velocity of each Sprite (px/ms) */
+  private float[] velocityX, velocityY;
+  /** Dimensions of each Sprite's image */
+  private float[] width, height;
+  /** Half of the dimensions of each Sprite's hitbox */
+  private float[] hitHalfWidth, hitHalfHeight;
+  /** Whether constant-velocity entities are positioned analytically instead of being integrated */
+  private boolean analyticMotion;
+  /** The time simulated by the store (milliseconds) */
+  private long time;
+  /** The length of the most recent simulation step (milliseconds) */
+  private int lastStep;
+  /** Incremented whenever time passes, i.e. whenever analytic positions may have changed */
+  private int motionVersion;
+  /** The fastest horizontal and vertical speed any entity has been given (px/ms) */
+  private float maxSpeedX, maxSpeedY;
+  /** The width of the area entities wrap around in, from x = 0 */
+  private float wrapWidth = App.getScreenWidth();
+  /** The x coordinate of each Sprite at its origin time, where analytic motion starts from */
+  private float[] originX;
+  /** The time each Sprite was last placed or changed its motion */
+  private long[] originTime;
+  /** The motion version each Sprite's x coordinate was last brought up to date at */
+  private int[] positionVersion;
+  /** Combination of FLAG constants for each Sprite */
+  private int[] flags;
+  /** Combination of {@link base.Capability} masks each Sprite was registered with */
+  private int[] capabilities;
+  /** The interned id of each Sprite's name */
+  private int[] assetId;
+  /** The Sprite object viewing each slot */
+  private Sprite[] views;
+  /** One reusable task per slice of the store, added to as the store grows */
+  private SliceTask[] sliceTasks = new SliceTask[0];
+  /** The number of slices the store is split into for the current integration */
+  private int sliceCount;
+  /** Moves every slice of the store and waits for them to finish */
+  private final IntegrateTask integrateTask = new IntegrateTask();
+
+  /** Initialises an empty store */
+  public EntityStore() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Resizes every column to a new capacity, keeping the existing entities
+   *
+   * @param capacity The new number of slots
+   */
+  private void allocate(int capacity) {
+    x = x == null ? new float[capacity] : Arrays.copyOf(x, capacity);
+    y = y == null ? new float[capacity] : Arrays.copyOf(y, capacity);
+    previousX = previousX == null ? new float[capacity] : Arrays.copyOf(previousX, capacity);
+    previousY = previousY == null ? new float[capacity] : Arrays.copyOf(previousY, capacity);
+    drawX = drawX == null ? new float[capacity] : Arrays.copyOf(drawX, capacity);
+    drawY = drawY == null ? new float[capacity] : Arrays.copyOf(drawY, capacity);
+    velocityX = velocityX == null ? new float[capacity] : Arrays.copyOf(velocityX, capacity);
+    velocityY = velocityY == null ? new float[capacity] : Arrays.copyOf(velocityY, capacity);
+    width = width == null ? new float[capacity] : Arrays.copyOf(width, capacity);
+    height = height == null ? new float[capacity] : Arrays.copyOf(height, capacity);
+    hitHalfWidth =
+        hitHalfWidth == null ? new float[capacity] : Arrays.copyOf(hitHalfWidth, capacity);
+    hitHalfHeight =
+        hitHalfHeight == null ? new float[capacity] : Arrays.copyOf(hitHalfHeight, capacity);
+    originX = originX == null ? new float[capacity] : Arrays.copyOf(originX, capacity);
+    originTime = originTime == null ? new long[capacity] : Arrays.copyOf(originTime, capacity);
+    positionVersion =
+        positionVersion == null ? new int[capacity] : Arrays.copyOf(positionVersion, capacity);
+    flags = flags == null ? new int[capacity] : Arrays.copyOf(flags, capacity);
+    capabilities =
+        capabilities == null ? new int[capacity] : Arrays.copyOf(capabilities, capacity);
+    assetId = assetId == null ? new int[capacity] : Arrays.copyOf(assetId, capacity);
+    views = views == null ? new Sprite[capacity] : Arrays.copyOf(views, capacity);
+  }
+
+  /**
+   * Hands out a new slot to a Sprite
+   *
+   * @param view The Sprite that views the slot
+   * @param name The name of the Sprite, interned as its asset id
+   * @return The entity index of the new slot
+   */
+  public int add(Sprite view, String name) {
+    if (size == views.length) {
+      allocate(size * 2);
+    }
+    Integer id = assetIds.get(name);
+    if (id == null) {
+      id = assetIds.size();
+      assetIds.put(name, id);
+    }
+    views[size] = view;
+    assetId[size] = id;
+    return size++;
+  }
+
+  /**
+   * Writes the state of every entity and of the store's clock to a buffer
+   *
+   * @param out The buffer to write to
+   */
+  public void writeState(StateBuffer out) {
+    out.writeInt(size);
+    out.writeBoolean(analyticMotion);
+    out.writeLong(time);
+    out.writeInt(lastStep);
+    out.writeInt(motionVersion);
+    out.writeFloat(maxSpeedX);
+    out.writeFloat(maxSpeedY);
+    /* entity by entity, so the words of entities that do not change stay together */
+    for (int i = 0; i < size; i++) {
+      out.writeFloat(x[i]);
+      out.writeFloat(y[i]);
+      out.writeFloat(previousX[i]);
+      out.writeFloat(previousY[i]);
+      out.writeFloat(drawX[i]);
+      out.writeFloat(drawY[i]);
+      out.writeFloat(velocityX[i]);
+      out.writeFloat(velocityY[i]);
+      out.writeFloat(width[i]);
+      out.writeFloat(height[i]);
+      out.writeFloat(hitHalfWidth[i]);
+      out.writeFloat(hitHalfHeight[i]);
+      out.writeFloat(originX[i]);
+      out.writeLong(originTime[i]);
+      out.writeInt(positionVersion[i]);
+      out.writeInt(flags[i]);
+      out.writeInt(capabilities[i]);
+    }
+  }
+
+  /**
+   * Restores the state written by {@link #writeState(StateBuffer)}. Entities added since the state
+   * was written are deactivated but keep their slots, so that every state written by this store
+   * can still be restored later.
+   *
+   * @param in The buffer to read from
+   * @return The number of entities the state holds
+   * @throws IllegalArgumentException If the state holds entities this store never had
+   */
+  public int readState(StateBuffer in) {
+    int count = in.readInt();
+    if (count > size) {
+      throw new IllegalArgumentException("The state was not written by this store");
+    }
+    analyticMotion = in.readBoolean();
+    time = in.readLong();
+    lastStep = in.readInt();
+    motionVersion = in.readInt();
+    maxSpeedX = in.readFloat();
+    maxSpeedY = in.readFloat();
+    for (int i = 0; i < count; i++) {
+      x[i] = in.readFloat();
+      y[i] = in.readFloat();
+      previousX[i] = in.readFloat();
+      previousY[i] = in.readFloat();
+      drawX[i] = in.readFloat();
+      drawY[i] = in.readFloat();
+      velocityX[i] = in.readFloat();
+      velocityY[i] = in.readFloat();
+      width[i] = in.readFloat();
+      height[i] = in.readFloat();
+      hitHalfWidth[i] = in.readFloat();
+      hitHalfHeight[i] = in.readFloat();
+      originX[i] = in.readFloat();
+      originTime[i] = in.readLong();
+      positionVersion[i] = in.readInt();
+      flags[i] = in.readInt();
+      capabilities[i] = in.readInt();
+    }
+    for (int i = count; i < size; i++) {
+      flags[i] &= ~FLAG_ACTIVE;
+    }
+    return count;
+  }
+
+  /**
+   * Gets the number of slots handed out so far
+   *
+   * @return The number of entities ever added
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the Sprite viewing a slot
+   *
+   * @param index The entity index
+   * @return The Sprite owning the slot
+   */
+  public Sprite getView(int index) {
+    return views[index];
+  }
+
+  public float getX(int index) {
+    if (analyticMotion && positionVersion[index] != motionVersion) {
+      materialize(index);
+    }
+    return x[index];
+  }
+
+  public float getY(int index) {
+    return y[index];
+  }
+
+  /**
+   * Sets the center coordinates of an entity
+   *
+   * @param index The entity index
+   * @param newX The new x coordinate
+   * @param newY The new y coordinate
+   */
+  public void setPosition(int index, float newX, float newY) {
+    x[index] = newX;
+    y[index] = newY;
+    rebase(index);
+  }
+
+  /**
+   * Specifies whether constant-velocity entities are positioned analytically. Switching it on makes
+   * every such entity continue from where it currently is.
+   *
+   * <p>Analytic positions wrap around the screen over the same span as {@link
+   * MovingSprite#respawn()}, but without the discrete overshoot of a step, so they drift from the
+   * integrated ones by up to one step's movement per wrap-around. Sprites that override {@link
+   * MovingSprite#onTimeTick(int)} are not affected.
+   *
+   * @param enabled True to compute positions analytically, False to integrate them every tick
+   */
+  public void setAnalyticMotion(boolean enabled) {
+    if (enabled == analyticMotion) {
+      return;
+    }
+    if (enabled) {
+      for (int i = 0; i < size; i++) {
+        rebase(i);
+      }
+      analyticMotion = true;
+      return;
+    }
+    for (int i = 0; i < size; i++) {
+      if (materialize(i)) {
+        views[i].syncLocation();
+      }
+    }
+    analyticMotion = false;
+  }
+
+  public boolean isAnalyticMotion() {
+    return analyticMotion;
+  }
+
+  /**
+   * Gets the width of the area entities wrap around in, which is the screen unless the level was
+   * made wider
+   *
+   * @return The width in pixels
+   */
+  public float getWrapWidth() {
+    return wrapWidth;
+  }
+
+  /**
+   * Widens (or narrows) the area entities wrap around in, so that headless levels wider than the
+   * screen keep their movers spread out. Must be set before the level is first updated.
+   *
+   * @param width The width in pixels
+   */
+  public void setWrapWidth(float width) {
+    wrapWidth = width;
+  }
+
+  /**
+   * Gets a counter that changes whenever time passes, and with it the position of analytically
+   * moved entities
+   *
+   * @return The current motion version
+   */
+  public int getMotionVersion() {
+    return motionVersion;
+  }
+
+  /**
+   * Specifies whether an entity is currently positioned analytically
+   *
+   * @param index The entity index
+   * @return True if the entity's position is computed from the time passed, else False
+   */
+  public boolean isAnalytic(int index) {
+    return analyticMotion
+        && (flags[index] & (FLAG_ACTIVE | FLAG_LINEAR)) == (FLAG_ACTIVE | FLAG_LINEAR)
+        && velocityX[index] != 0
+        && velocityY[index] == 0;
+  }
+
+  /**
+   * Makes an entity's current position the origin of its analytic motion
+   *
+   * @param index The entity index
+   */
+  private void rebase(int index) {
+    originX[index] = x[index];
+    originTime[index] = time;
+    positionVersion[index] = motionVersion;
+  }
+
+  /**
+   * Brings the stored position of an analytically moved entity up to date
+   *
+   * @param index The entity index
+   * @return True if the entity has moved since its position was last brought up to date
+   */
+  public boolean materialize(int index) {
+    if (positionVersion[index] == motionVersion) {
+      return false;
+    }
+    positionVersion[index] = motionVersion;
+    if (!isAnalytic(index)) {
+      return false;
+    }
+    float newX = analyticX(index, time);
+    if (newX == x[index]) {
+      return false;
+    }
+    x[index] = newX;
+    return true;
+  }
+
+  /**
+   * Computes where an analytically moved entity is at a point in time. The entity travels from
+   * where {@link MovingSprite#respawn()} places it to where its hitbox leaves the screen, then
+   * starts over.
+   *
+   * @param index The entity index
+   * @param at The time (milliseconds)
+   * @return The x coordinate of the entity's center
+   */
+  private float analyticX(int index, double at) {
+    double travelled = originX[index] + velocityX[index] * (at - originTime[index]);
+    double start = wrapStart(index);
+    double span = wrapSpan(index);
+    if (velocityX[index] > 0) {
+      return (float) (start + floorMod(travelled - start, span));
+    }
+    return (float) (start - floorMod(start - travelled, span));
+  }
+
+  /**
+   * Counts how many times an analytically moved entity has wrapped around the screen between its
+   * origin time and a point in time
+   *
+   * @param index The entity index
+   * @param at The time (milliseconds)
+   * @return The number of wrap-arounds
+   */
+  private long analyticLaps(int index, double at) {
+    double travelled = originX[index] + velocityX[index] * (at - originTime[index]);
+    double start = wrapStart(index);
+    double distance = velocityX[index] > 0 ? travelled - start : start - travelled;
+    return (long) Math.floor(distance / wrapSpan(index));
+  }
+
+  /**
+   * Gets where an analytically moved entity reappears after wrapping around the screen
+   *
+   * @param index The entity index
+   * @return The x coordinate of the entity's center
+   */
+  private double wrapStart(int index) {
+    double padding = MovingSprite.RESPAWN_PADDING * width[index];
+    return velocityX[index] > 0 ? -padding : wrapWidth + padding;
+  }
+
+  /**
+   * Gets the distance an analytically moved entity travels between two wrap-arounds
+   *
+   * @param index The entity index
+   * @return The distance in pixels
+   */
+  private double wrapSpan(int index) {
+    double start = wrapStart(index);
+    return velocityX[index] > 0
+        ? wrapWidth + hitHalfWidth[index] - start
+        : start + hitHalfWidth[index];
+  }
+
+  /**
+   * Computes the remainder of a division that is always non-negative
+   *
+   * @param value The dividend
+   * @param modulus The positive divisor
+   * @return value mod modulus, in the range [0, modulus)
+   */
+  private static double floorMod(double value, double modulus) {
+    return value - modulus * Math.floor(value / modulus);
+  }
+
+  /**
+   * Gets how far an entity moved horizontally during the current simulation step. Jumps (e.g.
+   * wrapping around the screen) count as no movement: entities flagged with {@link #FLAG_JUMPED},
+   * analytically moved entities that wrapped around during the step, and moves well beyond what
+   * any entity can travel in a step.
+   *
+   * @param index The entity index
+   * @return The horizontal distance moved since the start of the step
+   */
+  public float getStepDeltaX(int index) {
+    if ((flags[index] & FLAG_JUMPED) != 0) {
+      return 0;
+    }
+    float previous = previousX[index];
+    if (isAnalytic(index)) {
+      double stepStart = Math.max(time - lastStep, originTime[index]);
+      if (analyticLaps(index, stepStart) != analyticLaps(index, time)) {
+        return 0;
+      }
+      previous = analyticX(index, stepStart);
+    }
+    float delta = getX(index) - previous;
+    return Math.abs(delta) > getMaxStepX() * JUMP_MARGIN ? 0 : delta;
+  }
+
+  /**
+   * Gets how far an entity moved vertically during the current simulation step, see {@link
+   * #getStepDeltaX(int)}
+   *
+   * @param index The entity index
+   * @return The vertical distance moved since the start of the step
+   */
+  public float getStepDeltaY(int index) {
+    if ((flags[index] & FLAG_JUMPED) != 0) {
+      return 0;
+    }
+    float delta = y[index] - previousY[index];
+    return Math.abs(delta) > getMaxStepY() * JUMP_MARGIN ? 0 : delta;
+  }
+
+  /**
+   * Gets the furthest any entity can move horizontally in a single simulation step
+   *
+   * @return The distance in pixels
+   */
+  public float getMaxStepX() {
+    return maxSpeedX * lastStep;
+  }
+
+  /**
+   * Gets the furthest any entity can move vertically in a single simulation step
+   *
+   * @return The distance in pixels
+   */
+  public float getMaxStepY() {
+    return maxSpeedY * lastStep;
+  }
+
+  public float getDrawX(int index) {
+    return drawX[index];
+  }
+
+  public float getDrawY(int index) {
+    return drawY[index];
+  }
+
+  /**
+   * Makes an entity be drawn at its current position straight away instead of moving there over
+   * the rest of the step, used when it teleports (e.g. wrapping around the screen). The entity is
+   * flagged as having jumped until the next step begins.
+   *
+   * @param index The entity index
+   */
+  public void skipInterpolation(int index) {
+    previousX[index] = drawX[index] = getX(index);
+    previousY[index] = drawY[index] = y[index];
+    flags[index] |= FLAG_JUMPED;
+  }
+
+  /**
+   * Remembers the position of every entity at the start of a new simulation step, and clears the
+   * jumps made during the previous one
+   */
+  public void beginStep() {
+    System.arraycopy(x, 0, previousX, 0, size);
+    System.arraycopy(y, 0, previousY, 0, size);
+    for (int i = 0; i < size; i++) {
+      flags[i] &= ~FLAG_JUMPED;
+    }
+  }
+
+  /**
+   * Computes the position every entity is drawn at, partway between its position at the start of
+   * the current step and its current position
+   *
+   * @param alpha The fraction of a step that has passed since the current position was reached,
+   *     from 0 (draw the previous position) to 1 (draw the current position)
+   */
+  public void interpolate(float alpha) {
+    double drawTime = time - lastStep * (1 - (double) alpha);
+    for (int i = 0; i < size; i++) {
+      if (isAnalytic(i)) {
+        /* analytic entities are drawn exactly where they are partway through the step */
+        drawX[i] = analyticX(i, Math.max(drawTime, originTime[i]));
+        drawY[i] = y[i];
+        continue;
+      }
+      drawX[i] = previousX[i] + (x[i] - previousX[i]) * alpha;
+      drawY[i] = previousY[i] + (y[i] - previousY[i]) * alpha;
+    }
+  }
+
+  public float getVelocityX(int index) {
+    return velocityX[index];
+  }
+
+  public float getVelocityY(int index) {
+    return velocityY[index];
+  }
+
+  /**
+   * Sets the velocity of an entity
+   *
+   * @param index The entity index
+   * @param horizontal The horizontal speed (px/ms)
+   * @param vertical The vertical speed (px/ms)
+   */
+  public void setVelocity(int index, float horizontal, float vertical) {
+    getX(index);
+    velocityX[index] = horizontal;
+    velocityY[index] = vertical;
+    recordSpeed(index);
+    rebase(index);
+  }
+
+  /**
+   * Raises the fastest speeds on record to cover the velocity of an entity. Called whenever a
+   * velocity is set, and again for entities ticked concurrently, since their updates of the shared
+   * record may have been lost.
+   *
+   * @param index The entity index
+   */
+  public void recordSpeed(int index) {
+    maxSpeedX = Math.max(maxSpeedX, Math.abs(velocityX[index]));
+    maxSpeedY = Math.max(maxSpeedY, Math.abs(velocityY[index]));
+  }
+
+  public float getWidth(int index) {
+    return width[index];
+  }
+
+  public float getHeight(int index) {
+    return height[index];
+  }
+
+  /**
+   * Sets the dimensions of an entity's image
+   *
+   * @param index The entity index
+   * @param newWidth The width of the image
+   * @param newHeight The height of the image
+   */
+  public void setSize(int index, float newWidth, float newHeight) {
+    getX(index);
+    width[index] = newWidth;
+    height[index] = newHeight;
+    rebase(index);
+  }
+
+  /**
+   * Sets the dimensions of an entity's hitbox
+   *
+   * @param index The entity index
+   * @param hitWidth The width of the hitbox
+   * @param hitHeight The height of the hitbox
+   */
+  public void setHitSize(int index, float hitWidth, float hitHeight) {
+    getX(index);
+    hitHalfWidth[index] = hitWidth / 2;
+    hitHalfHeight[index] = hitHeight / 2;
+    rebase(index);
+  }
+
+  /**
+   * Gets the capabilities an entity was registered with
+   *
+   * @param index The entity index
+   * @return A combination of {@link base.Capability} masks
+   */
+  public int getCapabilities(int index) {
+    return capabilities[index];
+  }
+
+  /**
+   * Sets the capabilities an entity provides
+   *
+   * @param index The entity index
+   * @param capabilityMask A combination of {@link base.Capability} masks
+   */
+  public void setCapabilities(int index, int capabilityMask) {
+    capabilities[index] = capabilityMask;
+  }
+
+  /**
+   * Gets the interned id of an entity's name
+   *
+   * @param index The entity index
+   * @return The asset id
+   */
+  public int getAssetId(int index) {
+    return assetId[index];
+  }
+
+  /**
+   * Checks whether an entity has every one of a set of flags
+   *
+   * @param index The entity index
+   * @param flagMask The FLAG constants to check
+   * @return True if all of the flags are set, else False
+   */
+  public boolean hasFlags(int index, int flagMask) {
+    return (flags[index] & flagMask) == flagMask;
+  }
+
+  /**
+   * Sets or clears a set of flags on an entity
+   *
+   * @param index The entity index
+   * @param flagMask The FLAG constants to change
+   * @param value True to set the flags, False to clear them
+   */
+  public void setFlags(int index, int flagMask, boolean value) {
+    /* only these flags decide whether the entity is positioned analytically */
+    boolean motionFlags = (flagMask & (FLAG_ACTIVE | FLAG_LINEAR)) != 0;
+    if (motionFlags) {
+      getX(index);
+    }
+    if (value) {
+      flags[index] |= flagMask;
+    } else {
+      flags[index] &= ~flagMask;
+    }
+    if (motionFlags) {
+      rebase(index);
+    }
+  }
+
+  /**
+   * Checks whether the hitbox of an entity has left the screen, using the same rule as {@link
+   * Sprite#checkOutOfBounds()}. The edges are derived exactly like a {@link
+   * utilities.BoundingBox}'s so both checks agree to the last bit.
+   *
+   * @param index The entity index
+   * @return True if out of bounds, False if inside bounds
+   */
+  public boolean isOutOfBounds(int index) {
+    float left = x[index] - hitHalfWidth[index];
+    float top = y[index] - hitHalfHeight[index];
+    return top + hitHalfHeight[index] * 2 > App.getScreenHeight()
+        || top < 0
+        || left + hitHalfWidth[index] * 2 < 0
+        || left > wrapWidth;
+  }
+
+  /**
+   * Moves every active, constant-velocity entity by one tick. Entities that have completely left
+   * the screen horizontally (or partly vertically) are wrapped around by their {@link
+   * MovingSprite#respawn()} instead, exactly like {@link MovingSprite#onTimeTick(int)}. Analytic
+   * entities are left alone, as the time passing already moves them.
+   *
+   * @param delta Time passed since last frame (milliseconds).
+   */
+  public void integrate(int delta) {
+    integrate(delta, null);
+  }
+
+  /**
+   * Moves every active, constant-velocity entity by one tick like {@link #integrate(int)}, in
+   * slices of the store that are moved concurrently on a pool. Only the new positions are computed
+   * concurrently: the respawns and the spatial index updates that follow them are made on the
+   * calling thread afterwards, in entity order, so the outcome is identical.
+   *
+   * @param delta Time passed since last frame (milliseconds).
+   * @param pool The pool to move slices on, null to move every entity on the calling thread
+   */
+  public void integrate(int delta, ForkJoinPool pool) {
+    time += delta;
+    lastStep = delta;
+    motionVersion++;
+    if (pool == null || size < MIN_PARALLEL_INTEGRATE) {
+      for (int i = 0; i < size; i++) {
+        if (!isIntegrated(i)) {
+          continue;
+        }
+        if (isOutOfBounds(i)) {
+          ((MovingSprite) views[i]).respawn();
+          continue;
+        }
+        x[i] += velocityX[i] * delta;
+        y[i] += velocityY[i] * delta;
+        views[i].syncLocation();
+      }
+      return;
+    }
+    sliceCount = (size + INTEGRATE_SLICE - 1) / INTEGRATE_SLICE;
+    if (sliceTasks.length < sliceCount) {
+      int slices = sliceTasks.length;
+      sliceTasks = Arrays.copyOf(sliceTasks, sliceCount);
+      for (int i = slices; i < sliceCount; i++) {
+        sliceTasks[i] = new SliceTask(i * INTEGRATE_SLICE);
+      }
+    }
+    for (int i = 0; i < sliceCount; i++) {
+      sliceTasks[i].delta = delta;
+      sliceTasks[i].reinitialize();
+    }
+    integrateTask.reinitialize();
+    pool.invoke(integrateTask);
+    for (int i = 0; i < size; i++) {
+      if ((flags[i] & FLAG_RESPAWN) != 0) {
+        flags[i] &= ~FLAG_RESPAWN;
+        ((MovingSprite) views[i]).respawn();
+      } else if (isIntegrated(i)) {
+        views[i].syncLocation();
+      }
+    }
+  }
+
+  /**
+   * Checks whether an entity is moved by {@link #integrate(int)}
+   *
+   * @param index The entity index
+   * @return True if the entity is active, moving at a constant velocity and not analytic
+   */
+  private boolean isIntegrated(int index) {
+    final int required = FLAG_ACTIVE | FLAG_LINEAR;
+    return (flags[index] & required) == required
+        && (velocityX[index] != 0 || velocityY[index] != 0)
+        && !isAnalytic(index);
+  }
+
+  /**
+   * Skips time ahead for analytically moved entities only, e.g. to fast-forward the traffic of a
+   * headless level. Costs O(1) no matter how far ahead, as positions are only computed when read.
+   *
+   * @param millis The time to skip (milliseconds)
+   */
+  public void fastForward(long millis) {
+    time += millis;
+    motionVersion++;
+  }
+
+  /** Moves every slice of the store */
+  private class IntegrateTask extends RecursiveAction {
+    /** The version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void compute() {
+      for (int i = 0; i < sliceCount; i++) {
+        sliceTasks[i].fork();
+      }
+      for (int i = 0; i < sliceCount; i++) {
+        sliceTasks[i].join();
+      }
+    }
+  }
+
+  /** Moves the entities in a slice of {@link #INTEGRATE_SLICE} slots of the store */
+  private class SliceTask extends RecursiveAction {
+    /** The version of the serialized form */
+    private static final long serialVersionUID = 1L;
+    /** The first slot of the slice */
+    private final int from;
+    /** Time passed since last frame (milliseconds) */
+    private int delta;
+
+    private SliceTask(int from) {
+      this.from = from;
+    }
+
+    @Override
+    protected void compute() {
+      int to = Math.min(size, from + INTEGRATE_SLICE);
+      for (int i = from; i < to; i++) {
+        if (!isIntegrated(i)) {
+          continue;
+        }
+        /* respawns move the Sprite in the spatial index, so they wait for the calling thread */
+        if (isOutOfBounds(i)) {
+          flags[i] |= FLAG_RESPAWN;
+        } else {
+          x[i] += velocityX[i] * delta;
+          y[i] += velocityY[i] * delta;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package core;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the dimensions of PNG assets straight from their file header, so Sprites can be sized
+ * without decoding the image or creating a texture (i.e. without an OpenGL context).
+ */
+public final class ImageMetadata {
+  /** The eight byte signature at the start of every PNG file */
+  private static final byte[] PNG_SIGNATURE = {
+    (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'
+  };
+  /** The type of the header chunk holding the image dimensions */
+  private static final int IHDR_CHUNK = 0x49484452;
+  /** Dimensions of every image read so far, keyed by asset path */
+  private static final Map<String, int[]> dimensions = new HashMap<>();
+
+  private ImageMetadata() {}
+
+  /**
+   * Gets the width and height of the image at a path
+   *
+   * @param path The asset path of the image
+   * @return An array holding the width followed by the height, in pixels
+   * @throws IOException If the file could not be read or is not a PNG image
+   */
+  public static synchronized int[] getDimensions(String path) throws IOException {
+    int[] cached = dimensions.get(path);
+    if (cached != null) {
+      return cached;
+    }
+    try (DataInputStream in = new DataInputStream(new FileInputStream(path))) {
+      byte[] signature = new byte[PNG_SIGNATURE.length];
+      in.readFully(signature);
+      /* the IHDR chunk is required to come first: length, type, width, height */
+      in.readInt();
+      if (!Arrays.equals(signature, PNG_SIGNATURE) || in.readInt() != IHDR_CHUNK) {
+        throw new IOException(path + " is not a PNG image");
+      }
+      int[] size = {in.readInt(), in.readInt()};
+      dimensions.put(path, size);
+      return size;
+    }
+  }
+}
@@ -0,0 +1,557 @@
+package core;
+
+import base.Sprite;
+import utilities.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A broadphase that exploits the row-based layout of the levels. Every level places its Sprites on
+ * rows one tile apart and every mover travels horizontally, so Sprites are bucketed into lanes
+ * (rows centered on multiples of the lane height) and each lane is kept sorted by the left edge of
+ * its Sprites' hitboxes. An area query only visits the lanes it overlaps, and within a lane only
+ * the window of Sprites found by a binary search on x.
+ *
+ * <p>Lanes holding constant-velocity movers are also re-sorted after time has passed, since movers
+ * positioned analytically (see {@link EntityStore#setAnalyticMotion(boolean)}) move without being
+ * updated in the index. A Sprite that moves within a lane that is otherwise up to date is shifted
+ * to its new place instead, so Sprites ticked one after another in a dense lane do not each cause
+ * a full re-sort. Removing a Sprite only marks its entry, which its lanes skip until they next
+ * compact themselves.
+ *
+ * <p>Sprites moving vertically, and Sprites taller than {@link #MAX_LANE_SPAN} lanes, do not fit
+ * this scheme and are kept in a small list that every query checks in full.
+ */
+public class LaneIndex {
+  /** Sprites covering more lanes than this are checked by every query instead */
+  private static final int MAX_LANE_SPAN = 2;
+  /** Queries returning at most this many Sprites are sorted by insertion sort */
+  private static final int INSERTION_SORT_THRESHOLD = 32;
+  /** The number of extra lanes kept above and below the screen */
+  private static final int MARGIN_LANES = 2;
+  /** The height of a single lane */
+  private final float laneHeight;
+  /** Holds the state of every indexed Sprite */
+  private final EntityStore store;
+  /** The lane number of the first lane in {@link #lanes} */
+  private int firstLane;
+  /** Every lane, from top to bottom */
+  private Lane[] lanes;
+  /** Entries of the Sprites that are not kept in lanes */
+  private final List<Entry> freeEntries = new ArrayList<>();
+  /** The entry of every indexed Sprite, by entity index */
+  private Entry[] entries = new Entry[256];
+  /** Incremented on every query to avoid returning a Sprite twice */
+  private int queryStamp;
+  /** Increasing counter used to keep query results in insertion order */
+  private long nextOrder;
+  /** Reusable buffer holding the entries found by a query */
+  private Entry[] queryResults = new Entry[64];
+  /** The number of entries found by the current query */
+  private int resultCount;
+
+  /**
+   * Initialises an empty index with lanes covering the screen
+   *
+   * @param store Holds the state of the Sprites that will be indexed
+   * @param laneHeight The height of a lane, i.e. the distance between two rows of the level
+   * @param height The height of the area to cover
+   */
+  public LaneIndex(EntityStore store, float laneHeight, float height) {
+    this.store = store;
+    this.laneHeight = laneHeight;
+    firstLane = -MARGIN_LANES;
+    lanes = new Lane[(int) Math.ceil(height / laneHeight) + 1 + 2 * MARGIN_LANES];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = new Lane();
+    }
+  }
+
+  /**
+   * Converts a y coordinate into the number of the lane containing it
+   *
+   * @param y The y coordinate
+   * @return The lane number, where lane n is centered on n lane heights
+   */
+  private int laneOf(float y) {
+    return (int) Math.floor(y / laneHeight + 0.5f);
+  }
+
+  /**
+   * Adds lanes so that a range of lane numbers is covered
+   *
+   * @param minLane The first lane number that must exist
+   * @param maxLane The last lane number that must exist
+   */
+  private void growToCover(int minLane, int maxLane) {
+    int first = Math.min(firstLane, minLane - MARGIN_LANES);
+    int last = Math.max(firstLane + lanes.length - 1, maxLane + MARGIN_LANES);
+    Lane[] grown = new Lane[last - first + 1];
+    System.arraycopy(lanes, 0, grown, firstLane - first, lanes.length);
+    for (int i = 0; i < grown.length; i++) {
+      if (grown[i] == null) {
+        grown[i] = new Lane();
+      }
+    }
+    lanes = grown;
+    firstLane = first;
+  }
+
+  /**
+   * Gets the entry of an indexed Sprite
+   *
+   * @param sprite The Sprite
+   * @return The Sprite's entry, null if it is not indexed
+   */
+  private Entry entryOf(Sprite sprite) {
+    int index = sprite.getEntityIndex();
+    if (index >= entries.length) {
+      return null;
+    }
+    Entry entry = entries[index];
+    return entry != null && entry.sprite == sprite ? entry : null;
+  }
+
+  /**
+   * Specifies whether a Sprite must be checked by every query rather than kept in lanes
+   *
+   * @param sprite The Sprite
+   * @param box The hitbox of the Sprite
+   * @return True if the Sprite moves vertically or spans too many lanes, else False
+   */
+  private boolean isFree(Sprite sprite, BoundingBox box) {
+    return store.getVelocityY(sprite.getEntityIndex()) != 0
+        || laneOf(box.getBottom()) - laneOf(box.getTop()) >= MAX_LANE_SPAN;
+  }
+
+  /**
+   * Adds a Sprite to the index
+   *
+   * @param sprite The Sprite to index
+   */
+  public void add(Sprite sprite) {
+    if (entryOf(sprite) != null) {
+      return;
+    }
+    int index = sprite.getEntityIndex();
+    if (index >= entries.length) {
+      entries = Arrays.copyOf(entries, Math.max(index + 1, entries.length * 2));
+    }
+    Entry entry = new Entry(sprite, nextOrder++);
+    entries[index] = entry;
+    place(entry, sprite.getHitBox());
+  }
+
+  /**
+   * Removes a Sprite from the index
+   *
+   * @param sprite The Sprite to remove
+   */
+  public void remove(Sprite sprite) {
+    Entry entry = entryOf(sprite);
+    if (entry == null) {
+      return;
+    }
+    if (entry.laned) {
+      /* left in its lanes, which skip it and drop it the next time they are compacted */
+      entry.removed = true;
+      entry.laned = false;
+      for (int lane = entry.minLane; lane <= entry.maxLane; lane++) {
+        lanes[lane - firstLane].removedCount++;
+      }
+    }
+    unplace(entry);
+    entries[sprite.getEntityIndex()] = null;
+  }
+
+  /**
+   * Moves a Sprite to the lanes covered by its current hitbox. Sprites that are not indexed are
+   * ignored.
+   *
+   * @param sprite The Sprite that has moved
+   * @return True if the Sprite is indexed, else False
+   */
+  public boolean update(Sprite sprite) {
+    Entry entry = entryOf(sprite);
+    if (entry == null) {
+      return false;
+    }
+    BoundingBox box = sprite.getHitBox();
+    if (entry.laned
+        && box != null
+        && entry.minLane == laneOf(box.getTop())
+        && entry.maxLane == laneOf(box.getBottom())
+        && !isFree(sprite, box)) {
+      /* still in the same lanes, which are re-sorted lazily before they are next queried */
+      float key = box.getLeft();
+      if (entry.key != key) {
+        for (int lane = entry.minLane; lane <= entry.maxLane; lane++) {
+          lanes[lane - firstLane].move(entry, key, box.getRight() - key, store);
+        }
+        entry.key = key;
+      }
+      return true;
+    }
+    if (entry.free && box != null && isFree(sprite, box)) {
+      return true;
+    }
+    unplace(entry);
+    place(entry, box);
+    return true;
+  }
+
+  /**
+   * Puts an entry into the lanes covered by a hitbox, or into the free list
+   *
+   * @param entry The entry to place
+   * @param box The hitbox of the entry's Sprite, null to leave the entry unplaced
+   */
+  private void place(Entry entry, BoundingBox box) {
+    if (box == null) {
+      return;
+    }
+    if (isFree(entry.sprite, box)) {
+      entry.freeSlot = freeEntries.size();
+      freeEntries.add(entry);
+      entry.free = true;
+      return;
+    }
+    entry.minLane = laneOf(box.getTop());
+    entry.maxLane = laneOf(box.getBottom());
+    entry.key = box.getLeft();
+    if (entry.minLane < firstLane || entry.maxLane >= firstLane + lanes.length) {
+      growToCover(entry.minLane, entry.maxLane);
+    }
+    for (int lane = entry.minLane; lane <= entry.maxLane; lane++) {
+      lanes[lane - firstLane].add(entry);
+    }
+    entry.laned = true;
+  }
+
+  /**
+   * Takes an entry out of its lanes or the free list
+   *
+   * @param entry The entry to remove
+   */
+  private void unplace(Entry entry) {
+    if (entry.free) {
+      /* the free list is checked in full by every query, so its order does not matter */
+      Entry last = freeEntries.remove(freeEntries.size() - 1);
+      if (last != entry) {
+        freeEntries.set(entry.freeSlot, last);
+        last.freeSlot = entry.freeSlot;
+      }
+      entry.free = false;
+    }
+    if (entry.laned) {
+      for (int lane = entry.minLane; lane <= entry.maxLane; lane++) {
+        lanes[lane - firstLane].remove(entry);
+      }
+      entry.laned = false;
+    }
+  }
+
+  /**
+   * Collects every indexed Sprite that may overlap an area, in the order they were indexed.
+   * Callers are expected to perform the exact intersection test on the results.
+   *
+   * @param left The left edge of the area
+   * @param top The top edge of the area
+   * @param right The right edge of the area
+   * @param bottom The bottom edge of the area
+   * @param out The list to append the candidate Sprites to
+   */
+  public void query(float left, float top, float right, float bottom, List<Sprite> out) {
+    query(left, top, right, bottom, 0, out);
+  }
+
+  /**
+   * Collects every indexed Sprite that may overlap an area and provides any of a set of
+   * capabilities, in the order they were indexed. Sprites without the capabilities are skipped
+   * before the results are sorted, so a narrow query in a dense lane stays cheap.
+   *
+   * @param left The left edge of the area
+   * @param top The top edge of the area
+   * @param right The right edge of the area
+   * @param bottom The bottom edge of the area
+   * @param mask The {@link base.Capability} masks to accept, or 0 to accept any Sprite
+   * @param out The list to append the candidate Sprites to
+   */
+  public void query(float left, float top, float right, float bottom, int mask, List<Sprite> out) {
+    int stamp = ++queryStamp;
+    resultCount = 0;
+    int minLane = Math.max(firstLane, laneOf(top));
+    int maxLane = Math.min(firstLane + lanes.length - 1, laneOf(bottom));
+    for (int lane = minLane; lane <= maxLane; lane++) {
+      Lane entriesInLane = lanes[lane - firstLane];
+      entriesInLane.sort(store);
+      /* no entry starting further left can reach the area, as none is wider than maxWidth (the
+       * extra pixel absorbs rounding in the hitbox edges) */
+      for (int i = entriesInLane.lowerBound(left - entriesInLane.maxWidth - 1);
+          i < entriesInLane.size && entriesInLane.entries[i].key <= right;
+          i++) {
+        collect(entriesInLane.entries[i], mask, stamp);
+      }
+    }
+    for (int i = 0; i < freeEntries.size(); i++) {
+      Entry entry = freeEntries.get(i);
+      BoundingBox box = entry.sprite.getHitBox();
+      if (box.getRight() >= left
+          && box.getLeft() <= right
+          && box.getBottom() >= top
+          && box.getTop() <= bottom) {
+        collect(entry, mask, stamp);
+      }
+    }
+    sortByOrder(queryResults, resultCount);
+    for (int i = 0; i < resultCount; i++) {
+      out.add(queryResults[i].sprite);
+      queryResults[i] = null;
+    }
+  }
+
+  /**
+   * Adds an entry to the results of the current query, unless it has already been found or lacks
+   * the capabilities asked for
+   *
+   * @param entry The entry found
+   * @param mask The capability masks to accept, or 0 to accept any entry
+   * @param stamp The stamp of the current query
+   */
+  private void collect(Entry entry, int mask, int stamp) {
+    if (entry.removed
+        || entry.stamp == stamp
+        || (mask != 0 && (store.getCapabilities(entry.sprite.getEntityIndex()) & mask) == 0)) {
+      return;
+    }
+    entry.stamp = stamp;
+    if (resultCount == queryResults.length) {
+      queryResults = Arrays.copyOf(queryResults, resultCount * 2);
+    }
+    queryResults[resultCount++] = entry;
+  }
+
+  /**
+   * Sorts entries in the order their Sprites were indexed, in place and without allocating (which
+   * a Comparator-based sort does for larger inputs). Orders are unique, so stability is irrelevant.
+   *
+   * @param entries The entries to sort
+   * @param count The number of entries at the start of the array to sort
+   */
+  private static void sortByOrder(Entry[] entries, int count) {
+    if (count <= INSERTION_SORT_THRESHOLD) {
+      for (int i = 1; i < count; i++) {
+        Entry entry = entries[i];
+        int j = i - 1;
+        while (j >= 0 && entries[j].order > entry.order) {
+          entries[j + 1] = entries[j];
+          j--;
+        }
+        entries[j + 1] = entry;
+      }
+      return;
+    }
+    /* heap sort keeps larger queries at O(n log n) */
+    for (int i = count / 2 - 1; i >= 0; i--) {
+      siftDown(entries, i, count);
+    }
+    for (int end = count - 1; end > 0; end--) {
+      Entry largest = entries[0];
+      entries[0] = entries[end];
+      entries[end] = largest;
+      siftDown(entries, 0, end);
+    }
+  }
+
+  /**
+   * Restores the max-heap property below a node of a heap ordered by indexing order
+   *
+   * @param heap The entries forming the heap
+   * @param node The node to sift down
+   * @param count The number of entries in the heap
+   */
+  private static void siftDown(Entry[] heap, int node, int count) {
+    Entry entry = heap[node];
+    int child;
+    while ((child = 2 * node + 1) < count) {
+      if (child + 1 < count && heap[child + 1].order > heap[child].order) {
+        child++;
+      }
+      if (heap[child].order <= entry.order) {
+        break;
+      }
+      heap[node] = heap[child];
+      node = child;
+    }
+    heap[node] = entry;
+  }
+
+  /** The entries of a single lane, sorted by the left edge of their hitboxes */
+  private static class Lane {
+    /** The entries in the lane, sorted by key while {@link #sorted} is set */
+    private Entry[] entries = new Entry[16];
+    /** The number of entries in the lane */
+    private int size;
+    /** Whether entries are in key order and their keys match their hitboxes */
+    private boolean sorted = true;
+    /** The widest hitbox in the lane, as of the last sort */
+    private float maxWidth;
+    /** Whether the lane held constant-velocity movers as of the last sort */
+    private boolean hasMovers;
+    /** The motion version of the store as of the last sort */
+    private int sortedVersion;
+    /** The number of entries in the lane whose Sprites have been removed from the index */
+    private int removedCount;
+
+    private void add(Entry entry) {
+      if (removedCount * 2 > size) {
+        compact();
+      }
+      if (size == entries.length) {
+        entries = Arrays.copyOf(entries, size * 2);
+      }
+      entries[size++] = entry;
+      sorted = false;
+    }
+
+    private void remove(Entry entry) {
+      for (int i = 0; i < size; i++) {
+        if (entries[i] == entry) {
+          System.arraycopy(entries, i + 1, entries, i, size - i - 1);
+          entries[--size] = null;
+          return;
+        }
+      }
+    }
+
+    /** Drops the entries of removed Sprites, keeping the order of the others */
+    private void compact() {
+      int kept = 0;
+      for (int i = 0; i < size; i++) {
+        if (!entries[i].removed) {
+          entries[kept++] = entries[i];
+        }
+      }
+      Arrays.fill(entries, kept, size, null);
+      size = kept;
+      removedCount = 0;
+    }
+
+    /**
+     * Records that an entry has moved to a new key. If the lane is up to date the entry is shifted
+     * to its new place, which only passes the entries it overtook; otherwise the lane is left to
+     * be re-sorted in full before it is next queried.
+     *
+     * @param entry The entry that moved
+     * @param key The new left edge of the entry's hitbox
+     * @param width The width of the entry's hitbox
+     * @param store Holds the state of the entries' Sprites
+     */
+    private void move(Entry entry, float key, float width, EntityStore store) {
+      if (!sorted || (hasMovers && sortedVersion != store.getMotionVersion())) {
+        sorted = false;
+        return;
+      }
+      int i = lowerBound(entry.key);
+      while (i < size && entries[i] != entry && entries[i].key == entry.key) {
+        i++;
+      }
+      if (i == size || entries[i] != entry) {
+        sorted = false;
+        return;
+      }
+      for (; i > 0 && entries[i - 1].key > key; i--) {
+        entries[i] = entries[i - 1];
+      }
+      for (; i < size - 1 && entries[i + 1].key < key; i++) {
+        entries[i] = entries[i + 1];
+      }
+      entries[i] = entry;
+      maxWidth = Math.max(maxWidth, width);
+    }
+
+    /**
+     * Refreshes the keys of the entries and puts them back in order. Lane movers keep their
+     * relative order between wrap-arounds, so the insertion sort runs in close to linear time.
+     *
+     * @param store Holds the state of the entries' Sprites
+     */
+    private void sort(EntityStore store) {
+      if (sorted && (!hasMovers || sortedVersion == store.getMotionVersion())) {
+        return;
+      }
+      if (removedCount > 0) {
+        compact();
+      }
+      maxWidth = 0;
+      hasMovers = false;
+      for (int i = 0; i < size; i++) {
+        Sprite sprite = entries[i].sprite;
+        BoundingBox box = sprite.getHitBox();
+        entries[i].key = box.getLeft();
+        maxWidth = Math.max(maxWidth, box.getRight() - box.getLeft());
+        hasMovers |= store.hasFlags(sprite.getEntityIndex(), EntityStore.FLAG_LINEAR);
+      }
+      for (int i = 1; i < size; i++) {
+        Entry entry = entries[i];
+        int j = i - 1;
+        while (j >= 0 && entries[j].key > entry.key) {
+          entries[j + 1] = entries[j];
+          j--;
+        }
+        entries[j + 1] = entry;
+      }
+      sorted = true;
+      sortedVersion = store.getMotionVersion();
+    }
+
+    /**
+     * Finds the first entry whose key is not below a value
+     *
+     * @param key The value to search for
+     * @return The index of the first entry with a key of at least the value
+     */
+    private int lowerBound(float key) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (entries[middle].key < key) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
+
+  /** Book-keeping for a single indexed Sprite */
+  private static class Entry {
+    /** The indexed Sprite */
+    private final Sprite sprite;
+    /** The position of the Sprite in indexing order */
+    private final long order;
+    /** The left edge of the Sprite's hitbox, as of the last sort of its lanes */
+    private float key;
+    /** The range of lanes the Sprite was last placed in */
+    private int minLane, maxLane;
+    /** Whether the Sprite currently occupies any lanes */
+    private boolean laned;
+    /** Whether the Sprite is in the list checked by every query */
+    private boolean free;
+    /** The position of the entry in the list checked by every query, while it is in it */
+    private int freeSlot;
+    /** Whether the Sprite has been removed from the index, while its lanes may still hold it */
+    private boolean removed;
+    /** The last query that returned this Sprite */
+    private int stamp;
+
+    private Entry(Sprite sprite, long order) {
+      this.sprite = sprite;
+      this.order = order;
+    }
+  }
+}
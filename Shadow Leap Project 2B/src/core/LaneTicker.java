@@ -0,0 +1,157 @@
+package core;
+
+import base.MovingSprite;
+import base.Sprite;
+import base.TimeSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Ticks the Sprites of a level with the lanes of the screen running concurrently on a
+ * ForkJoinPool. Sprites in different lanes never meet, and most ticked Sprites only read and change
+ * themselves (see {@link MovingSprite#ticksIndependently()}).
+ *
+ * <p>Everything else - the Player, power-ups, bulldozers and Drivers carrying riders - moves other
+ * Sprites or changes the state of the level, so it is ticked on the calling thread in a sequential
+ * merge phase. The ticked Sprites are walked in Sprite Map order: each run of independent Sprites
+ * between two sequential ones forms a batch whose lanes are ticked concurrently, after which the
+ * updates the batch made to shared state are applied in order and the next sequential Sprite is
+ * ticked. Every Sprite therefore sees exactly the state it would see on a single thread, and the
+ * level ends up bit for bit identical to one updated without a LaneTicker.
+ */
+public class LaneTicker {
+  /** Batches smaller than this are ticked on the calling thread, as forking would cost more */
+  private static final int MIN_PARALLEL_BATCH = 256;
+  /** The Sprite Manager of the level whose Sprites are ticked */
+  private final SpriteAssetManager manager;
+  /** Runs the lanes of a batch */
+  private final ForkJoinPool pool;
+  /** The height of a single lane */
+  private final float laneHeight;
+  /** The Sprites of the current batch, in Sprite Map order */
+  private final List<Sprite> batch = new ArrayList<>();
+  /** One reusable task per lane of the screen, lanes further away share the same tasks */
+  private final LaneTask[] laneTasks;
+  /** Ticks every lane of a batch and waits for them to finish */
+  private final BatchTask batchTask = new BatchTask();
+
+  /**
+   * Initialises a LaneTicker for a level
+   *
+   * @param manager The Sprite Manager of the level whose Sprites will be ticked
+   * @param pool The pool to tick lanes on
+   * @param laneHeight The height of a lane, i.e. the distance between two rows of the level
+   * @param height The height of the area the lanes cover
+   */
+  public LaneTicker(SpriteAssetManager manager, ForkJoinPool pool, float laneHeight, float height) {
+    this.manager = manager;
+    this.pool = pool;
+    this.laneHeight = laneHeight;
+    laneTasks = new LaneTask[(int) Math.ceil(height / laneHeight) + 1];
+    for (int i = 0; i < laneTasks.length; i++) {
+      laneTasks[i] = new LaneTask();
+    }
+  }
+
+  /**
+   * Moves the level's constant-velocity movers by one tick, in slices of its {@link EntityStore}
+   * that are moved concurrently
+   *
+   * @param delta Time passed since last frame (milliseconds)
+   */
+  public void integrate(int delta) {
+    manager.getEntityStore().integrate(delta, pool);
+  }
+
+  /**
+   * Ticks Sprites with the same outcome as ticking them one after another
+   *
+   * @param tickedSprites The Sprites to tick, in Sprite Map order
+   * @param delta Time passed since last frame (milliseconds)
+   */
+  public void tick(List<Sprite> tickedSprites, int delta) {
+    for (int i = 0; i < tickedSprites.size(); i++) {
+      Sprite sprite = tickedSprites.get(i);
+      /* checked only once the Sprites before it have been ticked, as they may board a Driver */
+      if (sprite instanceof MovingSprite && ((MovingSprite) sprite).ticksIndependently()) {
+        batch.add(sprite);
+      } else {
+        tickBatch(delta);
+        ((TimeSupport) sprite).onTimeTick(delta);
+      }
+    }
+    tickBatch(delta);
+  }
+
+  /**
+   * Ticks the current batch, concurrently by lane if it is large enough, then empties it
+   *
+   * @param delta Time passed since last frame (milliseconds)
+   */
+  private void tickBatch(int delta) {
+    if (batch.size() < MIN_PARALLEL_BATCH) {
+      for (int i = 0; i < batch.size(); i++) {
+        ((TimeSupport) batch.get(i)).onTimeTick(delta);
+      }
+      batch.clear();
+      return;
+    }
+    for (LaneTask task : laneTasks) {
+      task.sprites.clear();
+      task.delta = delta;
+      task.reinitialize();
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      Sprite sprite = batch.get(i);
+      int lane = (int) Math.floor(sprite.getY() / laneHeight + 0.5f);
+      laneTasks[Math.floorMod(lane, laneTasks.length)].sprites.add(sprite);
+    }
+    batchTask.reinitialize();
+    manager.beginConcurrentTicks();
+    try {
+      pool.invoke(batchTask);
+    } finally {
+      manager.endConcurrentTicks(batch);
+      batch.clear();
+    }
+  }
+
+  /** Ticks every lane holding Sprites of the current batch */
+  private class BatchTask extends RecursiveAction {
+    /** The version of the serialized form */
+    private static final long serialVersionUID = 1L;
+    @Override
+    protected void compute() {
+      for (LaneTask task : laneTasks) {
+        if (!task.sprites.isEmpty()) {
+          task.fork();
+        }
+      }
+      for (LaneTask task : laneTasks) {
+        if (!task.sprites.isEmpty()) {
+          task.join();
+        }
+      }
+    }
+  }
+
+  /** Ticks the Sprites of a batch that lie in a single lane */
+  private static class LaneTask extends RecursiveAction {
+    /** The version of the serialized form */
+    private static final long serialVersionUID = 1L;
+    /** The Sprites to tick, in Sprite Map order */
+    private final List<Sprite> sprites = new ArrayList<>();
+    /** Time passed since last frame (milliseconds) */
+    private int delta;
+
+    @Override
+    protected void compute() {
+      for (int i = 0; i < sprites.size(); i++) {
+        ((TimeSupport) sprites.get(i)).onTimeTick(delta);
+      }
+    }
+  }
+}
@@ -1,18 +1,23 @@
 package core;
 
+import base.Capability;
 import base.Driver;
 import base.KeySupport;
 import base.LevelState;
 import base.Sprite;
 import base.TimeSupport;
 import customsprites.PowerUp;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Input;
 import utilities.Position;
+import utilities.SeededRandom;
+import utilities.StateBuffer;
 
 /** A wrapper class that encapsulates all the sprites and events for a specified level. */
 public class Level {
@@ -31,25 +36,149 @@ public class Level {
   /** The X separation between the winning holes */
   private static final int WINNING_X_SEPARATION = 192;
   /** A description of the placeholder markers indicating level progress */
-  private static final String PROGRESS_MARKER = "filledhole";
+  public static final String PROGRESS_MARKER = "filledhole";
   /** Manages the Sprites and associated functions for this level */
   private final SpriteAssetManager spriteManager;
   /** The number of the current level */
   private final int levelNumber;
+  /** Whether the level runs without a display, i.e. without loading any images */
+  private final boolean headless;
+  /** Whether sprite images are waiting to be loaded through {@link #loadPendingTextures(int)} */
+  private boolean texturesPending;
+  /** The index in the Sprite Map of the next sprite whose image should be loaded */
+  private int textureLoadCursor;
+  /** Receives the level transitions that end this level */
+  private final LevelHost host;
+  /** Cached render target holding the static Sprites */
+  private final StaticLayer staticLayer;
+  /** Draws the non-static Sprites in texture batches */
+  private final SpriteRenderer spriteRenderer = new SpriteRenderer();
   /** A list of all partial completion positions ('holes') for the level */
   private final List<Position> winningPositions = new ArrayList<>();
+  /** Reusable buffer holding the Sprites ticked individually during an update */
+  private final List<Sprite> tickedSprites = new ArrayList<>();
+  /** Queues the state transitions published while the level is updated */
+  private final LevelEventBus events = new LevelEventBus(this);
+  /** Ticks the level's lanes concurrently, null to tick every Sprite on the calling thread */
+  private LaneTicker laneTicker;
   /** Used for internal JVM logging */
   private final Logger log = Logger.getLogger(getClass().getSimpleName());
+  /** The seed the level's random number generator started from */
+  private final long seed;
+  /** The only source of randomness on the level, so a seeded level always plays out the same */
+  private final SeededRandom random;
   /** The time between successive extra life object spawns */
   private int extraLifeSpawnWaitTime;
   /** Counter to keep track of the time elapsed since the last extra spawn time */
   private int extraLifeTimeDelta;
-  /** Initialises a new core.Level */
-  public Level(int level) {
+  /** The number of holes the player has filled on the level */
+  private int filledHoles;
+  /**
+   * Initialises a new core.Level that is rendered on the display
+   *
+   * @param level The number of the level to load
+   * @param host The owner notified when the level or game ends
+   */
+  public Level(int level, LevelHost host) {
+    this(level, false, host);
+  }
+
+  /**
+   * Initialises a new core.Level
+   *
+   * @param level The number of the level to load
+   * @param headless True to simulate the level without a display or any images loaded
+   * @param host The owner notified when the level or game ends
+   */
+  public Level(int level, boolean headless, LevelHost host) {
+    this(level, null, headless, host);
+  }
+
+  /**
+   * Initialises a new core.Level whose random events are reproducible
+   *
+   * @param level The number of the level to load
+   * @param headless True to simulate the level without a display or any images loaded
+   * @param seed The seed for the level's random number generator
+   * @param host The owner notified when the level or game ends
+   */
+  public Level(int level, boolean headless, long seed, LevelHost host) {
+    this(level, null, headless, false, seed, host);
+  }
+
+  /**
+   * Initialises a new core.Level from level data supplied by the caller
+   *
+   * @param level The number of the level
+   * @param levelData The lines describing the level's assets, or null to read the level file
+   * @param headless True to simulate the level without a display or any images loaded
+   * @param host The owner notified when the level or game ends
+   */
+  public Level(int level, List<String> levelData, boolean headless, LevelHost host) {
+    this(level, levelData, headless, false, SeededRandom.randomSeed(), host);
+  }
+
+  /**
+   * Initialises a new core.Level
+   *
+   * @param level The number of the level
+   * @param levelData The lines describing the level's assets, or null to read the level file
+   * @param headless True to simulate the level without a display or any images loaded
+   * @param deferTextures True to size sprites from image metadata and load images later
+   * @param seed The seed for the level's random number generator
+   * @param host The owner notified when the level or game ends
+   */
+  private Level(
+      int level,
+      List<String> levelData,
+      boolean headless,
+      boolean deferTextures,
+      long seed,
+      LevelHost host) {
+    this(level, headless, deferTextures, seed, host);
+    /* loads all assets for this level */
+    if (levelData == null) {
+      getSpriteManager().loadAssets();
+    } else {
+      getSpriteManager().loadAssets(levelData);
+    }
+  }
+
+  /**
+   * Initialises a new core.Level from a compiled level held in memory, such as the one stored in a
+   * saved game (see {@link SaveGame})
+   *
+   * @param level The number of the level
+   * @param compiledLevel The buffer holding the compiled level, from its position onwards
+   * @param headless True to simulate the level without a display or any images loaded
+   * @param seed The seed for the level's random number generator
+   * @param host The owner notified when the level or game ends
+   * @throws IOException If the buffer does not hold a compiled level
+   */
+  Level(int level, ByteBuffer compiledLevel, boolean headless, long seed, LevelHost host)
+      throws IOException {
+    this(level, headless, false, seed, host);
+    getSpriteManager().loadCompiledAssets(compiledLevel);
+  }
+
+  /**
+   * Initialises a new core.Level without any assets
+   *
+   * @param level The number of the level
+   * @param headless True to simulate the level without a display or any images loaded
+   * @param deferTextures True to size sprites from image metadata and load images later
+   * @param seed The seed for the level's random number generator
+   * @param host The owner notified when the level or game ends
+   */
+  private Level(int level, boolean headless, boolean deferTextures, long seed, LevelHost host) {
     levelNumber = level;
+    this.seed = seed;
+    random = new SeededRandom(seed);
+    this.headless = headless;
+    texturesPending = deferTextures && !headless;
+    this.host = host;
     spriteManager = new SpriteAssetManager(this);
-    /* loads all assets for this level */
-    getSpriteManager().loadAssets();
+    staticLayer = new StaticLayer(spriteManager);
     /* stores Position of all holes to be filled */
     for (int x = WINNING_X_START; x < App.getScreenWidth(); x += WINNING_X_SEPARATION) {
       winningPositions.add(new Position(x, WINNING_Y));
@@ -66,6 +195,57 @@ public class Level {
     return WINNING_Y;
   }
 
+  /**
+   * Builds a level without touching the rendering context, so it can be prepared on a background
+   * thread. The sprite images must then be loaded on the rendering thread through {@link
+   * #loadPendingTextures(int)} before the level is rendered.
+   *
+   * @param level The number of the level to load
+   * @param seed The seed for the level's random number generator
+   * @param host The owner notified when the level or game ends
+   * @return The prepared level
+   */
+  public static Level prepare(int level, long seed, LevelHost host) {
+    return new Level(level, null, false, true, seed, host);
+  }
+
+  /**
+   * Loads the images of a limited number of sprites whose textures were deferred. Must be called on
+   * the rendering thread.
+   *
+   * @param maxSprites The maximum number of sprites to load images for
+   * @return True once every sprite image has been loaded, else False
+   */
+  public boolean loadPendingTextures(int maxSprites) {
+    List<Sprite> sprites = getSpriteManager().getSpriteMap();
+    for (int loaded = 0; texturesPending && loaded < maxSprites; loaded++) {
+      if (textureLoadCursor >= sprites.size()) {
+        texturesPending = false;
+        break;
+      }
+      sprites.get(textureLoadCursor++).loadImage();
+    }
+    return !texturesPending;
+  }
+
+  /**
+   * Specifies whether sprites created on this level load their images immediately
+   *
+   * @return False if the level is headless or its textures are deferred, else True
+   */
+  public boolean loadsTexturesEagerly() {
+    return !headless && !texturesPending;
+  }
+
+  /**
+   * Specifies whether the level is simulated without a display
+   *
+   * @return True if no images are loaded for this level, else False
+   */
+  public boolean isHeadless() {
+    return headless;
+  }
+
   /**
    * Gets the Sprite Manager managing this level
    *
@@ -84,6 +264,128 @@ public class Level {
     return levelNumber;
   }
 
+  /**
+   * Gets the number of holes the player has filled on the level so far
+   *
+   * @return The number of filled holes
+   */
+  public int getFilledHoleCount() {
+    return filledHoles;
+  }
+
+  /**
+   * Gets the seed the level's random number generator started from
+   *
+   * @return The seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Specifies whether the level's constant-velocity movers are positioned analytically instead of
+   * being moved every tick (see {@link EntityStore#setAnalyticMotion(boolean)})
+   *
+   * @param enabled True to compute their positions from the time passed, else False
+   */
+  public void setAnalyticMotion(boolean enabled) {
+    getSpriteManager().getEntityStore().setAnalyticMotion(enabled);
+  }
+
+  /**
+   * Specifies whether the level's Sprites are ticked with its lanes running concurrently (see
+   * {@link LaneTicker}), and its constant-velocity movers are integrated in concurrent slices. The
+   * outcome is identical either way, this only pays off on levels with thousands of Sprites.
+   *
+   * @param pool The pool to tick lanes on, null to tick every Sprite on the calling thread
+   */
+  public void setParallelUpdate(ForkJoinPool pool) {
+    laneTicker =
+        pool == null
+            ? null
+            : new LaneTicker(
+                getSpriteManager(), pool, App.getTileLength(), App.getScreenHeight());
+  }
+
+  /**
+   * Summarises the simulated state of the level in a single value: every Sprite's name and exact
+   * position in Sprite Map order, the player's lives and the random number generator. Two runs of
+   * the same recorded game end with the same digest unless the game's behaviour has changed.
+   *
+   * @return A hash of the level's state
+   */
+  public long getStateDigest() {
+    long digest = levelNumber;
+    List<Sprite> sprites = getSpriteManager().getSpriteMap();
+    for (int i = 0; i < sprites.size(); i++) {
+      Sprite sprite = sprites.get(i);
+      digest = digest * 31 + sprite.getSpriteName().hashCode();
+      digest = digest * 31 + Float.floatToIntBits(sprite.getX());
+      digest = digest * 31 + Float.floatToIntBits(sprite.getY());
+    }
+    digest = digest * 31 + getSpriteManager().getPlayer().getLives();
+    digest = digest * 31 + extraLifeTimeDelta;
+    return digest * 31 + random.getState();
+  }
+
+  /**
+   * Takes a snapshot of the simulated state of the level, which {@link #restore(StateBuffer)} can
+   * return the level to later
+   *
+   * @return A new buffer holding the state of the level
+   */
+  public StateBuffer snapshot() {
+    StateBuffer out = new StateBuffer();
+    snapshot(out);
+    return out;
+  }
+
+  /**
+   * Takes a snapshot of the simulated state of the level into an existing buffer, overwriting what
+   * it held. Writing into a fork of an earlier snapshot (see {@link StateBuffer#fork()}) only
+   * copies the parts of the state that have changed since, so a tree of snapshots branching from
+   * one another costs little more than the state that differs between them.
+   *
+   * @param out The buffer to write the state to
+   */
+  public void snapshot(StateBuffer out) {
+    out.clear();
+    out.writeInt(levelNumber);
+    out.writeLong(random.getState());
+    out.writeInt(extraLifeSpawnWaitTime);
+    out.writeInt(extraLifeTimeDelta);
+    out.writeInt(filledHoles);
+    getSpriteManager().writeState(out);
+  }
+
+  /**
+   * Returns the level to the state of a snapshot taken of it, in place: no Sprite is created and no
+   * image is reloaded. Sprites are never discarded by a level, so every snapshot it took can be
+   * restored however far the level has moved on, and the same snapshot can be restored any number
+   * of times.
+   *
+   * @param in A snapshot taken by this level
+   * @throws IllegalArgumentException If the snapshot was taken by another level
+   */
+  public void restore(StateBuffer in) {
+    in.rewind();
+    if (in.readInt() != levelNumber) {
+      throw new IllegalArgumentException("The snapshot was taken on another level");
+    }
+    random.setState(in.readLong());
+    extraLifeSpawnWaitTime = in.readInt();
+    extraLifeTimeDelta = in.readInt();
+    filledHoles = in.readInt();
+    events.clear();
+    getSpriteManager().readState(in);
+  }
+
+  /** Releases the resources held by this level once it is no longer played */
+  public void dispose() {
+    staticLayer.dispose();
+    getSpriteManager().releaseAssets();
+  }
+
   /**
    * Generates a pseudo-random number in a specified range.
    *
@@ -93,38 +395,53 @@ public class Level {
    */
   private int getRandomNumber(int min, int max) {
     int diff = max - min;
-    Random random = new Random();
     int i = random.nextInt(diff + 1);
     i += min;
     return i;
   }
 
   /**
-   * Changes the state of the world
+   * Gets the queue that the state transitions of the level are published to during an update, and
+   * that listeners subscribe to
+   *
+   * @return The event bus of the level
+   */
+  public LevelEventBus getEventBus() {
+    return events;
+  }
+
+  /**
+   * Changes the state of the world. Called for every transition published to the event bus, once
+   * the update that published it is over.
    *
    * @param state The state to change LevelState to
+   * @param subject The Sprite the transition is about
    */
-  public void changeWorldState(LevelState state) {
+  void changeWorldState(LevelState state, Sprite subject) {
     log.info("Level State Changed: " + "Current State = " + state.toString());
     switch (state) {
       case PlayerDeath:
         if (!getSpriteManager().getPlayer().removeLife()) {
-          App.closeGame();
+          host.onGameOver(this);
         } else {
           getSpriteManager().resetPlayer();
         }
         break;
       case Finished:
-        App.nextWorld();
+        host.onLevelFinished(this);
         break;
       case PartlyFinished:
         Position winLocation = getClosestHolePosition(getSpriteManager().getPlayer().getLocation());
         getSpriteManager().resetPlayer();
         getSpriteManager().addFauxPlayer(PROGRESS_MARKER, winLocation);
+        filledHoles++;
         if (checkWin()) {
-          changeWorldState(LevelState.Finished);
+          events.publish(LevelState.Finished, subject);
         }
         break;
+      case PowerUpCollected:
+        ((PowerUp) subject).applyPowerUp(getSpriteManager().getPlayer());
+        break;
     }
   }
 
@@ -195,42 +512,80 @@ public class Level {
    * @param delta Time passed since last frame (milliseconds).
    */
   public void update(Input input, int delta) {
+    update(delta);
+  }
+
+  /**
+   * Update all time-supported Sprites, without requiring any device input. The state transitions
+   * they publish are processed once every Sprite has been ticked.
+   *
+   * @param delta Time passed since last frame (milliseconds).
+   */
+  public void update(int delta) {
+    getSpriteManager().getEntityStore().beginStep();
     extraLifeTimeDelta += delta;
     if (extraLifeTimeDelta / 1000 >= extraLifeSpawnWaitTime) {
       spawnExtraLife();
       extraLifeTimeDelta = 0;
     }
-    List<Sprite> timeSupportSprites =
-        getSpriteManager().filterSprites(s -> s instanceof TimeSupport);
-    for (Sprite s : timeSupportSprites) {
-      ((TimeSupport) s).onTimeTick(delta);
+    /* constant-velocity movers are integrated in bulk, everything else is ticked individually */
+    if (laneTicker != null) {
+      laneTicker.integrate(delta);
+    } else {
+      getSpriteManager().getEntityStore().integrate(delta);
+    }
+    tickedSprites.clear();
+    getSpriteManager().collectSprites(Capability.TICKABLE, tickedSprites);
+    if (laneTicker != null) {
+      laneTicker.tick(tickedSprites, delta);
+    } else {
+      for (int i = 0; i < tickedSprites.size(); i++) {
+        ((TimeSupport) tickedSprites.get(i)).onTimeTick(delta);
+      }
     }
+    getSpriteManager().sweepRemovedSprites();
+    events.dispatch();
   }
 
   /**
-   * Signals all key-pressed sprites of a new key press
+   * Signals all key-pressed sprites of a new key press, then processes the state transitions they
+   * publish
    *
    * @param key The ASCII value of the key pressed
    * @param c The ASCII character of the key pressed
    */
   public void onKeyPressed(int key, char c) {
-    List<Sprite> keySupportSprites = getSpriteManager().filterSprites(s -> s instanceof KeySupport);
+    List<Sprite> keySupportSprites = getSpriteManager().getSprites(Capability.KEY_LISTENER);
     for (Sprite s : keySupportSprites) {
       ((KeySupport) s).onKeyPress(key, c);
     }
+    getSpriteManager().sweepRemovedSprites();
+    events.dispatch();
   }
 
   /**
-   * Renders all sprites on the Sprite Map onto the Level
+   * Renders all sprites on the Sprite Map onto the Level. Static sprites are drawn from the cached
+   * static layer when render targets are available, the rest are drawn in texture batches.
    *
    * @param g The Graphics object to render the Level on
    */
   public void render(Graphics g) {
+    render(g, 1);
+  }
+
+  /**
+   * Renders all sprites, drawing every moving sprite partway between its position at the start of
+   * the last simulation step and its current position
+   *
+   * @param g The Graphics object to render the Level on
+   * @param alpha The fraction of a simulation step that has passed since the last step, in [0, 1]
+   */
+  public void render(Graphics g, float alpha) {
     if (getSpriteManager() == null || getSpriteManager().getSpriteMap() == null) {
       return;
     }
-    for (Sprite s : getSpriteManager().getSpriteMap()) {
-      s.render(g);
-    }
+    getSpriteManager().getEntityStore().interpolate(alpha);
+    boolean staticDrawn = staticLayer.render(g);
+    spriteRenderer.render(g, getSpriteManager(), staticDrawn);
   }
 }
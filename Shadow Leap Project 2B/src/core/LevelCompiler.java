@@ -0,0 +1,127 @@
+package core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline compiler from text level files (N.lvl) to the compact binary level format (N.blvl) that
+ * {@link SpriteAssetManager} memory-maps when loading a level. All values are big-endian:
+ *
+ * <pre>
+ * int    magic ("SLVL")
+ * short  version
+ * short  number of asset names, followed by each name as a short byte length and UTF-8 bytes
+ * int    number of sprites, followed by one 11 byte record per sprite:
+ *          short asset name index, byte direction flags, float x, float y
+ * </pre>
+ */
+public final class LevelCompiler {
+  /** The extension of text level files */
+  static final String TEXT_EXTENSION = ".lvl";
+  /** The extension of compiled level files */
+  static final String COMPILED_EXTENSION = ".blvl";
+  /** Identifies a compiled level file ("SLVL") */
+  static final int MAGIC = 0x534C564C;
+  /** The version of the compiled level format */
+  static final short VERSION = 1;
+  /** Flag set when the level specifies a direction of movement for the sprite */
+  static final int HAS_DIRECTION = 1;
+  /** Flag set when the sprite moves to the right */
+  static final int MOVE_RIGHT = 1 << 1;
+
+  private LevelCompiler() {}
+
+  /**
+   * Compiles the text level files of the given levels (or of every world) next to their sources
+   *
+   * @param args The numbers of the levels to compile, all worlds if empty
+   * @throws IOException If a level could not be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    int[] levelNumbers = new int[args.length == 0 ? App.getNumberOfWorlds() : args.length];
+    for (int i = 0; i < levelNumbers.length; i++) {
+      levelNumbers[i] = args.length == 0 ? i : Integer.parseInt(args[i]);
+    }
+    for (int levelNumber : levelNumbers) {
+      Path source = SpriteAssetManager.getLevelPath(levelNumber, TEXT_EXTENSION);
+      Path target = SpriteAssetManager.getLevelPath(levelNumber, COMPILED_EXTENSION);
+      int sprites = compile(source, target);
+      System.out.println(String.format("Compiled %s -> %s (%d sprites)", source, target, sprites));
+    }
+  }
+
+  /**
+   * Compiles a text level file into a binary level file
+   *
+   * @param source The text level file to read
+   * @param target The compiled level file to write
+   * @return The number of sprites written
+   * @throws IOException If the source could not be read or the target written
+   */
+  public static int compile(Path source, Path target) throws IOException {
+    List<String> lines = Files.readAllLines(source, StandardCharsets.UTF_8);
+    try (OutputStream out = Files.newOutputStream(target)) {
+      return compile(lines, out);
+    }
+  }
+
+  /**
+   * Compiles lines of level data into the binary level format
+   *
+   * @param lines The lines of level data, each in the form name,x,y[,moveRight]
+   * @param output The stream to write the compiled level to
+   * @return The number of sprites written
+   * @throws IOException If the output could not be written
+   */
+  public static int compile(List<String> lines, OutputStream output) throws IOException {
+    Map<String, Integer> nameIndices = new HashMap<>();
+    List<String> names = new ArrayList<>();
+    List<String[]> records = new ArrayList<>();
+    for (String line : lines) {
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      String[] assetInfo = line.split(",");
+      assetInfo[0] = assetInfo[0].toLowerCase();
+      if (!nameIndices.containsKey(assetInfo[0])) {
+        nameIndices.put(assetInfo[0], names.size());
+        names.add(assetInfo[0]);
+      }
+      records.add(assetInfo);
+    }
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+    out.writeInt(MAGIC);
+    out.writeShort(VERSION);
+    out.writeShort(names.size());
+    for (String name : names) {
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      out.writeShort(bytes.length);
+      out.write(bytes);
+    }
+    out.writeInt(records.size());
+    for (String[] assetInfo : records) {
+      int flags = 0;
+      if (assetInfo.length > 3) {
+        flags |= HAS_DIRECTION;
+        if (Boolean.parseBoolean(assetInfo[3])) {
+          flags |= MOVE_RIGHT;
+        }
+      }
+      out.writeShort(nameIndices.get(assetInfo[0]));
+      out.writeByte(flags);
+      out.writeFloat(Float.parseFloat(assetInfo[1]));
+      out.writeFloat(Float.parseFloat(assetInfo[2]));
+    }
+    out.flush();
+    return records.size();
+  }
+}
@@ -0,0 +1,98 @@
+package core;
+
+import base.LevelState;
+import base.Sprite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Queues the state transitions of a level published while it is updated, and processes them in a
+ * batch once the update is over, so that no transition (and in particular no switch to another
+ * level) happens while the Sprites of the level are being iterated.
+ *
+ * <p>Publishing only appends to a reusable queue. Within a batch, the player dies at most once:
+ * further deaths, and holes reached after dying, are dropped. Transitions published while the
+ * batch is processed, such as the level being finished once its last hole is filled, join the end
+ * of the same batch.
+ */
+public class LevelEventBus {
+  /** The level whose transitions are queued */
+  private final Level level;
+  /** The subscribed listeners, notified in the order they subscribed */
+  private final List<LevelEventListener> listeners = new ArrayList<>();
+  /** The queued transitions, in the order they were published */
+  private LevelState[] events = new LevelState[8];
+  /** The Sprite each queued transition is about */
+  private Sprite[] subjects = new Sprite[8];
+  /** The number of queued transitions */
+  private int count;
+  /** Whether a death of the player is queued */
+  private boolean deathQueued;
+
+  /**
+   * Initialises an empty queue
+   *
+   * @param level The level whose transitions will be queued
+   */
+  LevelEventBus(Level level) {
+    this.level = level;
+  }
+
+  /**
+   * Queues a state transition until the end of the current update
+   *
+   * @param event The transition
+   * @param subject The Sprite the transition is about
+   */
+  public void publish(LevelState event, Sprite subject) {
+    if (deathQueued && (event == LevelState.PlayerDeath || event == LevelState.PartlyFinished)) {
+      return;
+    }
+    if (count == events.length) {
+      events = Arrays.copyOf(events, count * 2);
+      subjects = Arrays.copyOf(subjects, count * 2);
+    }
+    events[count] = event;
+    subjects[count] = subject;
+    count++;
+    deathQueued |= event == LevelState.PlayerDeath;
+  }
+
+  /**
+   * Subscribes a listener to the transitions of the level
+   *
+   * @param listener The listener to notify
+   */
+  public void subscribe(LevelEventListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Stops notifying a listener
+   *
+   * @param listener The listener to remove
+   */
+  public void unsubscribe(LevelEventListener listener) {
+    listeners.remove(listener);
+  }
+
+  /** Has the level handle every queued transition in order, notifying the listeners of each */
+  void dispatch() {
+    for (int i = 0; i < count; i++) {
+      level.changeWorldState(events[i], subjects[i]);
+      for (int j = 0; j < listeners.size(); j++) {
+        listeners.get(j).onLevelEvent(level, events[i], subjects[i]);
+      }
+    }
+    clear();
+  }
+
+  /** Drops every queued transition */
+  void clear() {
+    Arrays.fill(subjects, 0, count, null);
+    count = 0;
+    deathQueued = false;
+  }
+}
@@ -0,0 +1,20 @@
+package core;
+
+import base.LevelState;
+import base.Sprite;
+
+/**
+ * Implemented by whatever wants to follow the state transitions of a Level, such as metrics or
+ * replay tooling. Listeners subscribe to the level's {@link LevelEventBus} and are only called when
+ * the queued transitions are processed, never from within a tick.
+ */
+public interface LevelEventListener {
+  /**
+   * Raised once the level has handled a state transition
+   *
+   * @param level The level the transition happened on
+   * @param event The transition
+   * @param subject The Sprite the transition is about: the player, or the power-up collected
+   */
+  void onLevelEvent(Level level, LevelState event, Sprite subject);
+}
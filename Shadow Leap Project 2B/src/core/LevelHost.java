@@ -0,0 +1,21 @@
+package core;
+
+/**
+ * Implemented by whatever owns a running Level (the Slick2D application or a simulation host) so
+ * that a Level can signal the end of a world or of the game without any shared static state.
+ */
+public interface LevelHost {
+  /**
+   * Raised when every hole on a level has been filled
+   *
+   * @param level The level that has been completed
+   */
+  void onLevelFinished(Level level);
+
+  /**
+   * Raised when the player has run out of lives
+   *
+   * @param level The level on which the game ended
+   */
+  void onGameOver(Level level);
+}
@@ -0,0 +1,233 @@
+package core;
+
+import customsprites.PowerUp;
+import utilities.Position;
+import utilities.StateBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Saves a level being played to a file and resumes it later, exactly where it was left. A saved
+ * game holds the Sprites the level was built with as a compiled level (see {@link LevelCompiler}),
+ * so resuming skips parsing the level file, followed by a snapshot of the level (see {@link
+ * Level#snapshot()}). All values are big-endian:
+ *
+ * <pre>
+ * int    magic ("SLSV")
+ * short  version
+ * int    level number
+ * long   seed of the level's random number generator
+ * bytes  compiled level of the Sprites the level was built with, at their current positions
+ * int    number of Sprites spawned after the level was built, followed by each name as a short
+ *          byte length and UTF-8 bytes
+ * int    number of words of the snapshot, followed by the words
+ * int    CRC-32 of everything before it
+ * </pre>
+ */
+public final class SaveGame {
+  /** Identifies a saved game ("SLSV") */
+  static final int MAGIC = 0x534C5356;
+  /** The version of the saved game format */
+  static final short VERSION = 1;
+  /** The spawn position of Sprites respawned while resuming, which the snapshot then moves */
+  private static final Position RESPAWN_POS = new Position(0, 0);
+
+  private SaveGame() {}
+
+  /**
+   * Saves a level to a file. The file is replaced in a single step once the saved game has been
+   * written in full, so a failed save never destroys an earlier one.
+   *
+   * @param level The level to save
+   * @param file The file to save the level to
+   * @throws IOException If the file could not be written
+   */
+  public static void save(Level level, Path file) throws IOException {
+    StateBuffer state = level.snapshot();
+    SpriteAssetManager manager = level.getSpriteManager();
+    EntityStore store = manager.getEntityStore();
+    int playerEntity = manager.getPlayer().getEntityIndex();
+    /* the Sprites built with the level are the ones created before the player */
+    List<String> levelData = new ArrayList<>();
+    for (int i = 0; i < playerEntity; i++) {
+      float velocity = store.getVelocityX(i);
+      levelData.add(
+          store.getView(i).getSpriteName()
+              + ","
+              + store.getX(i)
+              + ","
+              + store.getY(i)
+              + (velocity == 0 ? "" : "," + (velocity > 0)));
+    }
+    ByteArrayOutputStream compiledLevel = new ByteArrayOutputStream();
+    LevelCompiler.compile(levelData, compiledLevel);
+    List<byte[]> spawnedNames = new ArrayList<>();
+    int spawnedBytes = 0;
+    for (int i = playerEntity + 1; i < store.size(); i++) {
+      byte[] name = store.getView(i).getSpriteName().getBytes(StandardCharsets.UTF_8);
+      spawnedNames.add(name);
+      spawnedBytes += Short.BYTES + name.length;
+    }
+    ByteBuffer data =
+        ByteBuffer.allocate(
+            Integer.BYTES
+                + Short.BYTES
+                + Integer.BYTES
+                + Long.BYTES
+                + compiledLevel.size()
+                + Integer.BYTES
+                + spawnedBytes
+                + Integer.BYTES
+                + state.size() * Integer.BYTES
+                + Integer.BYTES);
+    data.putInt(MAGIC);
+    data.putShort(VERSION);
+    data.putInt(level.getLevelNumber());
+    data.putLong(level.getSeed());
+    data.put(compiledLevel.toByteArray());
+    data.putInt(spawnedNames.size());
+    for (byte[] name : spawnedNames) {
+      data.putShort((short) name.length);
+      data.put(name);
+    }
+    data.putInt(state.size());
+    state.rewind();
+    for (int i = 0; i < state.size(); i++) {
+      data.putInt(state.readInt());
+    }
+    CRC32 checksum = new CRC32();
+    checksum.update(data.array(), 0, data.position());
+    data.putInt((int) checksum.getValue());
+    data.flip();
+    Path partialFile = file.resolveSibling(file.getFileName() + ".partial");
+    try (FileChannel channel =
+        FileChannel.open(
+            partialFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      while (data.hasRemaining()) {
+        channel.write(data);
+      }
+    }
+    Files.move(partialFile, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Resumes a level from a saved game
+   *
+   * @param file The saved game
+   * @param headless True to simulate the level without a display or any images loaded
+   * @param host The owner notified when the level or game ends
+   * @return The level, in the state it was saved in
+   * @throws IOException If the file could not be read or is not a saved game
+   */
+  public static Level load(Path file, boolean headless, LevelHost host) throws IOException {
+    ByteBuffer data = read(file);
+    try {
+      if (data.getInt() != MAGIC || data.getShort() != VERSION) {
+        throw new IOException(file + " is not a saved game of a supported version");
+      }
+      int levelNumber = data.getInt();
+      if (levelNumber < 0 || levelNumber >= App.getNumberOfWorlds()) {
+        throw new IOException(file + " holds an unknown level: " + levelNumber);
+      }
+      long seed = data.getLong();
+      Level level = new Level(levelNumber, data, headless, seed, host);
+      int spawnedCount = data.getInt();
+      for (int i = 0; i < spawnedCount; i++) {
+        int nameLength = data.getShort();
+        if (nameLength < 0 || nameLength > data.remaining()) {
+          throw new IOException(file + " is truncated");
+        }
+        byte[] name = new byte[nameLength];
+        data.get(name);
+        respawn(level, new String(name, StandardCharsets.UTF_8));
+      }
+      int words = data.getInt();
+      if (words < 0 || words > data.remaining() / Integer.BYTES) {
+        throw new IOException(file + " is truncated");
+      }
+      StateBuffer state = new StateBuffer();
+      for (int i = 0; i < words; i++) {
+        state.writeInt(data.getInt());
+      }
+      level.restore(state);
+      return level;
+    } catch (BufferUnderflowException e) {
+      throw new IOException(file + " is truncated", e);
+    } catch (IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException e) {
+      throw new IOException(file + " does not match the level it was saved from", e);
+    }
+  }
+
+  /**
+   * Reads a whole saved game into memory and checks it for corruption. The file is read rather
+   * than mapped so that it is closed as soon as it has been read, and can be replaced or deleted
+   * straight away on every platform.
+   *
+   * @param file The saved game
+   * @return A buffer holding the contents of the file, up to its checksum
+   * @throws IOException If the file could not be read or is corrupt
+   */
+  private static ByteBuffer read(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(file + " is too large to be a saved game");
+      }
+      ByteBuffer data = ByteBuffer.allocate((int) size);
+      while (data.hasRemaining()) {
+        if (channel.read(data) < 0) {
+          break;
+        }
+      }
+      data.flip();
+      if (data.limit() < Integer.BYTES) {
+        throw new IOException(file + " is truncated");
+      }
+      int contentLength = data.limit() - Integer.BYTES;
+      CRC32 checksum = new CRC32();
+      checksum.update(data.array(), 0, contentLength);
+      if (data.getInt(contentLength) != (int) checksum.getValue()) {
+        throw new IOException(file + " is corrupt");
+      }
+      data.limit(contentLength);
+      return data;
+    }
+  }
+
+  /**
+   * Creates a Sprite that was spawned while the saved level was being played, such as a filled
+   * hole or an extra life
+   *
+   * @param level The level being resumed
+   * @param name The name of the Sprite
+   * @throws IOException If the level never spawns Sprites of that name
+   */
+  private static void respawn(Level level, String name) throws IOException {
+    SpriteAssetManager manager = level.getSpriteManager();
+    switch (name) {
+      case Level.PROGRESS_MARKER:
+        manager.addFauxPlayer(name, RESPAWN_POS);
+        break;
+      case Level.EXTRALIFE_NAME:
+        manager.addSprite(new PowerUp(level, name, Level.EXTRA_LIFE_IMG, RESPAWN_POS));
+        break;
+      default:
+        throw new IOException("Saved game holds an unknown spawned Sprite: " + name);
+    }
+  }
+}
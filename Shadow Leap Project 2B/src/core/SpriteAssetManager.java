@@ -4,16 +4,24 @@ import base.*;
 import customsprites.BikeSprite;
 import customsprites.MagicianSprite;
 import customsprites.SolidPushSprite;
+import utilities.BoundingBox;
 import utilities.Position;
+import utilities.StateBuffer;
 import utilities.Velocity;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * Helper class that reads, parses, and categorieses assets for a given level. All generated Sprites
@@ -60,6 +68,26 @@ public class SpriteAssetManager {
   private final List<Sprite> spriteMap;
   /** The level that this class is managing */
   private final Level level;
+  /** Lane-based spatial index over the Sprite Map used to answer area queries */
+  private final LaneIndex spriteIndex;
+  /** The Capabilities a Sprite can provide, cached to avoid copying the values on every add */
+  private static final Capability[] CAPABILITIES = Capability.values();
+  /** The Sprites providing each Capability, in Sprite Map order, indexed by ordinal */
+  private final List<List<Sprite>> registries = new ArrayList<>();
+  /** The number of Sprites removed since the last sweep, still in the Sprite Map until then */
+  private int pendingRemovals;
+  /** Reusable buffer holding the Sprite Map being restored */
+  private final List<Sprite> restoredMap = new ArrayList<>();
+  /** Reusable buffer holding candidate Sprites returned by the spatial index */
+  private final List<Sprite> queryCandidates = new ArrayList<>();
+  /** Holds the position, velocity and dimensions of every Sprite created for the level */
+  private final EntityStore entityStore = new EntityStore();
+  /** Incremented whenever the set or placement of static Sprites changes */
+  private int staticLayerVersion;
+  /** Whether Sprites are being ticked concurrently, which defers their shared updates */
+  private boolean concurrentTicks;
+  /** Whether the static layer was invalidated while Sprites were ticked concurrently */
+  private boolean staticLayerInvalidated;
   /** The main sprite that receives input events */
   private Player player;
 
@@ -72,6 +100,10 @@ public class SpriteAssetManager {
   public SpriteAssetManager(Level level) {
     this.level = level;
     spriteMap = new ArrayList<>();
+    for (int i = 0; i < CAPABILITIES.length; i++) {
+      registries.add(new ArrayList<>());
+    }
+    spriteIndex = new LaneIndex(entityStore, App.getTileLength(), App.getScreenHeight());
     /* keeps all assets with specialised behaviour separately */
     specialSprites.add(TURTLES);
     specialSprites.add(BIKE);
@@ -115,7 +147,9 @@ public class SpriteAssetManager {
   }
 
   /**
-   * Gets all the sprites on the current level.
+   * Gets all the sprites on the current level. Sprites removed during the current tick stay in the
+   * list until {@link #sweepRemovedSprites()} runs at the end of the tick, see {@link
+   * #isOnSpriteMap(Sprite)}.
    *
    * @return List of all Sprite objects
    */
@@ -123,13 +157,135 @@ public class SpriteAssetManager {
     return spriteMap;
   }
 
+  /**
+   * Gets the store holding the state of every Sprite created for the level.
+   *
+   * @return The level's EntityStore
+   */
+  public EntityStore getEntityStore() {
+    return entityStore;
+  }
+
   /**
    * Utilises the power of lambda expressions for quick filtering
    *
    * @param predicate the boolean expression to evaluate on search
    */
   public List<Sprite> filterSprites(Predicate<Sprite> predicate) {
-    return getSpriteMap().stream().filter(predicate).collect(Collectors.toList());
+    List<Sprite> returnList = new ArrayList<>();
+    filterSprites(predicate, returnList);
+    return returnList;
+  }
+
+  /**
+   * Appends every sprite satisfying a predicate to a caller-owned list, so that per-frame callers
+   * can reuse the same list instead of allocating a new one
+   *
+   * @param predicate the boolean expression to evaluate on search
+   * @param out The list to append the matching sprites to
+   */
+  public void filterSprites(Predicate<Sprite> predicate, List<Sprite> out) {
+    for (int i = 0; i < spriteMap.size(); i++) {
+      Sprite s = spriteMap.get(i);
+      if (isOnSpriteMap(s) && predicate.test(s)) {
+        out.add(s);
+      }
+    }
+  }
+
+  /**
+   * Gets the sprites that provide a capability, from its registry rather than by testing every
+   * sprite on the level
+   *
+   * @param capability The capability to look up
+   * @return A new list of the sprites providing the capability, in Sprite Map order
+   */
+  public List<Sprite> getSprites(Capability capability) {
+    List<Sprite> returnList = new ArrayList<>();
+    collectSprites(capability, returnList);
+    return returnList;
+  }
+
+  /**
+   * Appends the sprites that provide a capability to a caller-owned list, in Sprite Map order
+   *
+   * @param capability The capability to look up
+   * @param out The list to append the sprites to
+   */
+  public void collectSprites(Capability capability, List<Sprite> out) {
+    List<Sprite> registry = registries.get(capability.ordinal());
+    for (int i = 0; i < registry.size(); i++) {
+      Sprite s = registry.get(i);
+      if (isOnSpriteMap(s)) {
+        out.add(s);
+      }
+    }
+  }
+
+  /**
+   * Specifies whether any sprite on the level may provide a capability, in constant time
+   *
+   * @param capability The capability to look up
+   * @return False if no sprite provides the capability, else True
+   */
+  public boolean hasSprites(Capability capability) {
+    return !registries.get(capability.ordinal()).isEmpty();
+  }
+
+  /**
+   * Checks whether a sprite on the level provides a capability, in constant time
+   *
+   * @param sprite The sprite to check
+   * @param capability The capability to look for
+   * @return True if the sprite was registered with the capability, else False
+   */
+  public boolean hasCapability(Sprite sprite, Capability capability) {
+    return isOnSpriteMap(sprite) && matches(sprite, capability.getMask());
+  }
+
+  /**
+   * Checks a sprite's registered capabilities against a mask
+   *
+   * @param sprite A sprite on the level
+   * @param mask The Capability masks to accept, or 0 to accept any sprite
+   * @return True if the mask is 0 or the sprite provides any capability in it, else False
+   */
+  private boolean matches(Sprite sprite, int mask) {
+    return mask == 0 || (entityStore.getCapabilities(sprite.getEntityIndex()) & mask) != 0;
+  }
+
+  /**
+   * Filters only the sprites whose hitbox lies near a specified area, using the spatial index
+   *
+   * @param region The area to search in
+   * @param predicate the boolean expression to evaluate on search
+   * @return A list of Sprites near the region that satisfy the predicate
+   */
+  public List<Sprite> filterSprites(BoundingBox region, Predicate<Sprite> predicate) {
+    queryCandidates.clear();
+    spriteIndex.query(
+        region.getLeft(), region.getTop(), region.getRight(), region.getBottom(), queryCandidates);
+    List<Sprite> returnList = new ArrayList<>();
+    for (Sprite s : queryCandidates) {
+      if (predicate.test(s)) {
+        returnList.add(s);
+      }
+    }
+    return returnList;
+  }
+
+  /**
+   * Collects the sprites whose hitbox may lie within an area, in Sprite Map order, without
+   * performing an exact intersection test
+   *
+   * @param left The left edge of the area
+   * @param top The top edge of the area
+   * @param right The right edge of the area
+   * @param bottom The bottom edge of the area
+   * @param out The list to append the sprites to
+   */
+  public void collectSpritesIn(float left, float top, float right, float bottom, List<Sprite> out) {
+    spriteIndex.query(left, top, right, bottom, out);
   }
 
   /**
@@ -139,8 +295,16 @@ public class SpriteAssetManager {
    * @return A list of Sprites objects
    */
   public List<Sprite> getSpritesAt(Position pos) {
+    float halfTile = App.getTileLength() / 2f;
+    queryCandidates.clear();
+    spriteIndex.query(
+        pos.getX() - halfTile,
+        pos.getY() - halfTile,
+        pos.getX() + halfTile,
+        pos.getY() + halfTile,
+        queryCandidates);
     List<Sprite> returnList = new ArrayList<>();
-    for (Sprite s : spriteMap) {
+    for (Sprite s : queryCandidates) {
       if (s.getHitBox() != null
           && s.getHitBox().intersects(pos, App.getTileLength(), App.getTileLength())) {
         returnList.add(s);
@@ -156,15 +320,7 @@ public class SpriteAssetManager {
    * @return A list of Sprites
    */
   public List<Sprite> getIntersectingSprites(Sprite sprite) {
-    if (sprite.getHitBox() == null) {
-      return Collections.emptyList();
-    }
-    return filterSprites(
-        s ->
-            s != sprite
-                && sprite.getHitBox() != null
-                && s.getHitBox() != null
-                && s.getHitBox().intersects(sprite.getHitBox()));
+    return getIntersectingSprites(sprite, null);
   }
 
   /**
@@ -175,7 +331,115 @@ public class SpriteAssetManager {
    * @return A list of Sprites
    */
   public List<Sprite> getIntersectingSprites(Sprite sprite, Predicate<Sprite> predicate) {
-    return getIntersectingSprites(sprite).stream().filter(predicate).collect(Collectors.toList());
+    if (sprite.getHitBox() == null) {
+      return Collections.emptyList();
+    }
+    List<Sprite> returnList = new ArrayList<>();
+    collectIntersectingSprites(sprite, predicate, returnList);
+    return returnList;
+  }
+
+  /**
+   * Appends every sprite whose hitbox intersects with the hitbox of a specified Sprite and
+   * satisfies a boolean condition to a caller-owned list, without allocating
+   *
+   * @param sprite Sprite to check hitbox collision
+   * @param predicate The condition to satisfy, or null to accept every intersecting sprite
+   * @param out The list to append the intersecting sprites to
+   */
+  public void collectIntersectingSprites(
+      Sprite sprite, Predicate<Sprite> predicate, List<Sprite> out) {
+    collectIntersectingSprites(sprite, predicate, 0, out);
+  }
+
+  /**
+   * Appends every sprite whose hitbox intersects with the hitbox of a specified Sprite and that
+   * provides a capability to a caller-owned list. The capability is a constant-time lookup, so
+   * this is cheaper than testing the candidates with a predicate.
+   *
+   * @param sprite Sprite to check hitbox collision
+   * @param capability The capability the intersecting sprites must provide
+   * @param out The list to append the intersecting sprites to
+   */
+  public void collectIntersectingSprites(Sprite sprite, Capability capability, List<Sprite> out) {
+    collectIntersectingSprites(sprite, null, capability.getMask(), out);
+  }
+
+  /**
+   * Appends every sprite whose hitbox intersects with the hitbox of a specified Sprite, provides a
+   * capability and satisfies a boolean condition to a caller-owned list
+   *
+   * @param sprite Sprite to check hitbox collision
+   * @param predicate The condition to satisfy, or null to accept every intersecting sprite
+   * @param mask The Capability masks to accept, or 0 to accept any sprite
+   * @param out The list to append the intersecting sprites to
+   */
+  private void collectIntersectingSprites(
+      Sprite sprite, Predicate<Sprite> predicate, int mask, List<Sprite> out) {
+    BoundingBox hitBox = sprite.getHitBox();
+    if (hitBox == null) {
+      return;
+    }
+    queryCandidates.clear();
+    spriteIndex.query(
+        hitBox.getLeft(),
+        hitBox.getTop(),
+        hitBox.getRight(),
+        hitBox.getBottom(),
+        mask,
+        queryCandidates);
+    for (int i = 0; i < queryCandidates.size(); i++) {
+      Sprite s = queryCandidates.get(i);
+      if (s != sprite
+          && s.getHitBox() != null
+          && s.getHitBox().intersects(hitBox)
+          && (predicate == null || predicate.test(s))) {
+        out.add(s);
+      }
+    }
+  }
+
+  /**
+   * Appends every sprite whose hitbox touched the hitbox of a specified Sprite at any point during
+   * the current simulation step, and provides a capability, to a caller-owned list. Both are
+   * swept along the path they moved in the step, so a fast sprite cannot pass through the
+   * specified Sprite however long the step is.
+   *
+   * @param sprite Sprite to check hitbox collision
+   * @param capability The capability the intersecting sprites must provide
+   * @param out The list to append the intersecting sprites to
+   */
+  public void collectSweptIntersectingSprites(
+      Sprite sprite, Capability capability, List<Sprite> out) {
+    int mask = capability.getMask();
+    BoundingBox hitBox = sprite.getHitBox();
+    if (hitBox == null) {
+      return;
+    }
+    /* both Sprites may have moved, towards each other at worst */
+    float reachX = 2 * entityStore.getMaxStepX();
+    float reachY = 2 * entityStore.getMaxStepY();
+    float deltaX = entityStore.getStepDeltaX(sprite.getEntityIndex());
+    float deltaY = entityStore.getStepDeltaY(sprite.getEntityIndex());
+    queryCandidates.clear();
+    spriteIndex.query(
+        hitBox.getLeft() - reachX,
+        hitBox.getTop() - reachY,
+        hitBox.getRight() + reachX,
+        hitBox.getBottom() + reachY,
+        mask,
+        queryCandidates);
+    for (int i = 0; i < queryCandidates.size(); i++) {
+      Sprite s = queryCandidates.get(i);
+      if (s != sprite
+          && s.getHitBox() != null
+          && hitBox.sweptIntersects(
+              s.getHitBox(),
+              entityStore.getStepDeltaX(s.getEntityIndex()) - deltaX,
+              entityStore.getStepDeltaY(s.getEntityIndex()) - deltaY)) {
+        out.add(s);
+      }
+    }
   }
 
   /**
@@ -184,7 +448,24 @@ public class SpriteAssetManager {
    * @param newSprite The Sprite object to add to the Sprite Map
    */
   public void addSprite(Sprite newSprite) {
+    if (entityStore.hasFlags(newSprite.getEntityIndex(), EntityStore.FLAG_REMOVED)) {
+      /* re-added before its removal was swept, so it moves to the end like a new Sprite */
+      sweepRemovedSprites();
+    }
     spriteMap.add(newSprite);
+    spriteIndex.add(newSprite);
+    entityStore.setFlags(newSprite.getEntityIndex(), EntityStore.FLAG_ACTIVE, true);
+    int capabilities = 0;
+    for (Capability capability : CAPABILITIES) {
+      if (capability.isProvidedBy(newSprite)) {
+        registries.get(capability.ordinal()).add(newSprite);
+        capabilities |= capability.getMask();
+      }
+    }
+    entityStore.setCapabilities(newSprite.getEntityIndex(), capabilities);
+    if (newSprite.isStatic()) {
+      invalidateStaticLayer();
+    }
   }
 
   /**
@@ -198,12 +479,217 @@ public class SpriteAssetManager {
   }
 
   /**
-   * Removes a given Sprite from the Sprite Map
+   * Checks whether a Sprite is on the Sprite Map and has not been removed, in constant time
+   *
+   * @param sprite The Sprite to check
+   * @return True if the Sprite was added to this level and not removed since, else False
+   */
+  public boolean isOnSpriteMap(Sprite sprite) {
+    return sprite.getEntityStore() == entityStore
+        && entityStore.hasFlags(sprite.getEntityIndex(), EntityStore.FLAG_ACTIVE);
+  }
+
+  /**
+   * Removes a given Sprite from the level in constant time. It stops colliding, being rendered and
+   * being found by filters straight away, but is only dropped from the Sprite Map by the next
+   * {@link #sweepRemovedSprites()}, so Sprites may remove themselves while the map is iterated.
    *
    * @param sprite The Sprite to remove from the Sprite Map
    */
   public void removeSprite(Sprite sprite) {
-    spriteMap.remove(sprite);
+    if (!isOnSpriteMap(sprite)) {
+      return;
+    }
+    entityStore.setFlags(sprite.getEntityIndex(), EntityStore.FLAG_ACTIVE, false);
+    entityStore.setFlags(sprite.getEntityIndex(), EntityStore.FLAG_REMOVED, true);
+    spriteIndex.remove(sprite);
+    pendingRemovals++;
+    if (sprite.isStatic()) {
+      invalidateStaticLayer();
+    }
+    sprite.releaseImage();
+  }
+
+  /**
+   * Drops every removed Sprite from the Sprite Map and the capability registries, in a single pass
+   * each that keeps the order of the remaining Sprites. Called at the end of every tick.
+   */
+  public void sweepRemovedSprites() {
+    if (pendingRemovals == 0) {
+      return;
+    }
+    int kept = 0;
+    for (int i = 0; i < spriteMap.size(); i++) {
+      Sprite s = spriteMap.get(i);
+      if (isOnSpriteMap(s)) {
+        spriteMap.set(kept++, s);
+      } else {
+        entityStore.setFlags(s.getEntityIndex(), EntityStore.FLAG_REMOVED, false);
+      }
+    }
+    spriteMap.subList(kept, spriteMap.size()).clear();
+    for (List<Sprite> registry : registries) {
+      kept = 0;
+      for (int i = 0; i < registry.size(); i++) {
+        Sprite s = registry.get(i);
+        if (isOnSpriteMap(s)) {
+          registry.set(kept++, s);
+        }
+      }
+      registry.subList(kept, registry.size()).clear();
+    }
+    pendingRemovals = 0;
+  }
+
+  /** Releases the shared images held by every Sprite on the Sprite Map */
+  public void releaseAssets() {
+    for (Sprite s : spriteMap) {
+      s.releaseImage();
+    }
+  }
+
+  /**
+   * Updates the spatial index after a Sprite has moved or changed its hitbox
+   *
+   * @param sprite The Sprite that has moved
+   */
+  public void updateSpriteLocation(Sprite sprite) {
+    if (concurrentTicks) {
+      return;
+    }
+    if (spriteIndex.update(sprite) && sprite.isStatic()) {
+      invalidateStaticLayer();
+    }
+  }
+
+  /**
+   * Gets a counter that changes whenever the static Sprites have to be redrawn
+   *
+   * @return The current version of the static layer
+   */
+  public int getStaticLayerVersion() {
+    return staticLayerVersion;
+  }
+
+  /** Signals that the set or placement of static Sprites has changed */
+  public void invalidateStaticLayer() {
+    if (concurrentTicks) {
+      staticLayerInvalidated = true;
+      return;
+    }
+    staticLayerVersion++;
+  }
+
+  /**
+   * Starts ticking Sprites concurrently. Until {@link #endConcurrentTicks(List)}, the updates that
+   * moving Sprites make to state shared by the whole level are deferred.
+   */
+  public void beginConcurrentTicks() {
+    concurrentTicks = true;
+    staticLayerInvalidated = false;
+  }
+
+  /**
+   * Stops ticking Sprites concurrently and applies their deferred updates, in the order the
+   * Sprites would have been ticked on a single thread
+   *
+   * @param tickedSprites The Sprites that were ticked concurrently, in Sprite Map order
+   */
+  public void endConcurrentTicks(List<Sprite> tickedSprites) {
+    concurrentTicks = false;
+    for (int i = 0; i < tickedSprites.size(); i++) {
+      Sprite sprite = tickedSprites.get(i);
+      entityStore.recordSpeed(sprite.getEntityIndex());
+      updateSpriteLocation(sprite);
+    }
+    if (staticLayerInvalidated) {
+      invalidateStaticLayer();
+    }
+  }
+
+  /**
+   * Writes the state of every Sprite ever created for the level, and which of them make up the
+   * Sprite Map, to a buffer. Removed Sprites are swept first.
+   *
+   * @param out The buffer to write to
+   */
+  public void writeState(StateBuffer out) {
+    sweepRemovedSprites();
+    entityStore.writeState(out);
+    for (int i = 0; i < entityStore.size(); i++) {
+      entityStore.getView(i).writeState(out);
+    }
+    out.writeInt(spriteMap.size());
+    for (int i = 0; i < spriteMap.size(); i++) {
+      out.writeInt(spriteMap.get(i).getEntityIndex());
+    }
+  }
+
+  /**
+   * Restores the state written by {@link #writeState(StateBuffer)} in place. No Sprite is created:
+   * Sprites created since the state was written are taken off the Sprite Map, and Sprites removed
+   * since are put back in their former place.
+   *
+   * @param in The buffer to read from
+   * @throws IllegalArgumentException If the state was not written by this Sprite Manager
+   */
+  public void readState(StateBuffer in) {
+    sweepRemovedSprites();
+    int count = entityStore.readState(in);
+    for (int i = 0; i < count; i++) {
+      entityStore.getView(i).readState(in);
+    }
+    restoredMap.clear();
+    int mapSize = in.readInt();
+    for (int i = 0; i < mapSize; i++) {
+      restoredMap.add(entityStore.getView(in.readInt()));
+    }
+    if (restoredMap.equals(spriteMap)) {
+      /* the usual case, where only positions and timers have changed */
+      for (int i = 0; i < spriteMap.size(); i++) {
+        spriteIndex.update(spriteMap.get(i));
+      }
+    } else {
+      for (int i = 0; i < spriteMap.size(); i++) {
+        Sprite s = spriteMap.get(i);
+        spriteIndex.remove(s);
+        if (!isOnSpriteMap(s)) {
+          s.releaseImage();
+        }
+      }
+      /* re-added in Sprite Map order, which is the order queries return Sprites in */
+      for (int i = 0; i < restoredMap.size(); i++) {
+        Sprite s = restoredMap.get(i);
+        spriteIndex.add(s);
+        if (level.loadsTexturesEagerly()) {
+          s.loadImage();
+        }
+      }
+      spriteMap.clear();
+      spriteMap.addAll(restoredMap);
+      for (int i = 0; i < registries.size(); i++) {
+        List<Sprite> registry = registries.get(i);
+        registry.clear();
+        for (int j = 0; j < spriteMap.size(); j++) {
+          if (matches(spriteMap.get(j), CAPABILITIES[i].getMask())) {
+            registry.add(spriteMap.get(j));
+          }
+        }
+      }
+    }
+    restoredMap.clear();
+    invalidateStaticLayer();
+  }
+
+  /**
+   * Gets the relative path to a level's data file
+   *
+   * @param levelNumber The number of the level
+   * @param extension The extension of the data file, including the dot
+   * @return The relative path to the level data file
+   */
+  static Path getLevelPath(int levelNumber, String extension) {
+    return Paths.get(ASSET_ROOT, LEVELS_ROOT, levelNumber + extension);
   }
 
   /**
@@ -213,10 +699,9 @@ public class SpriteAssetManager {
    */
   private List<String> readAssets() {
     String relFilePath =
-        Paths.get(ASSET_ROOT, LEVELS_ROOT, String.format("%d.lvl", level.getLevelNumber()))
-            .toString();
+        getLevelPath(level.getLevelNumber(), LevelCompiler.TEXT_EXTENSION).toString();
     List<String> lines = new ArrayList<>();
-    File file = new File(String.format(relFilePath, level.getLevelNumber()));
+    File file = new File(relFilePath);
     try (Scanner sc = new Scanner(file)) {
       while (sc.hasNextLine()) {
         lines.add(sc.nextLine());
@@ -232,81 +717,212 @@ public class SpriteAssetManager {
   /** Adds the player to the Sprite Map */
   private void addPlayer() {
     player = new Player(level, getAssetPath(PLAYER_ASSET_NAME), PLAYER_START_POS);
-    spriteMap.add(player);
+    addSprite(player);
   }
 
   /**
-   * Parses and categorises lines from the level file into their appropriate Sprite subclasses and
-   * adds them the Sprite Map
+   * Loads the assets of the level, preferring a compiled level file (see {@link LevelCompiler})
+   * over parsing the text level file whenever the compiled file is up to date.
    */
   public void loadAssets() {
-    List<String> assets = readAssets();
+    File textFile = getLevelPath(level.getLevelNumber(), LevelCompiler.TEXT_EXTENSION).toFile();
+    File compiledFile =
+        getLevelPath(level.getLevelNumber(), LevelCompiler.COMPILED_EXTENSION).toFile();
+    if (compiledFile.isFile() && compiledFile.lastModified() >= textFile.lastModified()) {
+      try {
+        loadCompiledAssets(compiledFile.toPath());
+        return;
+      } catch (IOException e) {
+        log.log(
+            java.util.logging.Level.WARNING,
+            "Could not load compiled level " + compiledFile + ", parsing text level instead",
+            e);
+        /* discards anything loaded before the failure */
+        for (Sprite s : spriteMap) {
+          removeSprite(s);
+        }
+        sweepRemovedSprites();
+      }
+    }
+    loadAssets(readAssets());
+  }
+
+  /**
+   * Parses and categorises lines of level data into their appropriate Sprite subclasses and adds
+   * them the Sprite Map
+   *
+   * @param assets The lines of level data, each in the form name,x,y[,moveRight]
+   */
+  public void loadAssets(List<String> assets) {
     for (String line : assets) {
       String[] assetInfo = line.split(",");
-      String assetName = assetInfo[0].toLowerCase();
-      if (assetName.equals("turtle")) {
-        assetName = TURTLES;
-      }
-      AssetType assetType = null;
-      if (assetTypes.containsKey(assetName)) {
-        assetType = assetTypes.get(assetName);
-      } else if (!specialSprites.contains(assetName)) {
-        log.log(java.util.logging.Level.WARNING, "Tried to load unknown asset type: " + assetName);
+      String assetName = resolveAssetName(assetInfo[0]);
+      if (assetName == null) {
         continue;
       }
-      String imageSrc = getAssetPath(assetName);
-      Position spawnPos =
-          new Position(Float.parseFloat(assetInfo[1]), Float.parseFloat(assetInfo[2]));
-      boolean moveRight;
-      Velocity newVelocity = new Velocity(0, 0);
       /* checks if there is information about direction of movement*/
-      if (assetInfo.length > 3) {
-        if (speedInfo.containsKey(assetName)) {
-          newVelocity = speedInfo.get(assetName);
+      boolean hasDirection = assetInfo.length > 3;
+      boolean moveRight = hasDirection && Boolean.parseBoolean(assetInfo[3]);
+      createSprite(
+          assetName,
+          getAssetPath(assetName),
+          Float.parseFloat(assetInfo[1]),
+          Float.parseFloat(assetInfo[2]),
+          hasDirection,
+          moveRight);
+    }
+    addPlayer();
+  }
+
+  /**
+   * Loads the assets of a compiled level file in a single pass over the memory-mapped file. Asset
+   * names and image paths are resolved once per entry of the file's name table.
+   *
+   * @param compiledFile The path to the compiled level file
+   * @throws IOException If the file can not be read or is not a compiled level
+   */
+  public void loadCompiledAssets(Path compiledFile) throws IOException {
+    try (FileChannel channel = FileChannel.open(compiledFile, StandardOpenOption.READ)) {
+      loadCompiledAssets(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Loads the assets of a compiled level held in a buffer, from its position onwards. The buffer
+   * is left positioned after the compiled level.
+   *
+   * @param data The buffer holding the compiled level
+   * @throws IOException If the buffer does not hold a compiled level
+   */
+  public void loadCompiledAssets(ByteBuffer data) throws IOException {
+    try {
+      if (data.getInt() != LevelCompiler.MAGIC || data.getShort() != LevelCompiler.VERSION) {
+        throw new IOException("Not a compiled level of a supported version");
+      }
+      int nameCount = data.getShort();
+      if (nameCount < 0) {
+        throw new IOException("The compiled level has a negative number of asset names");
+      }
+      String[] assetNames = new String[nameCount];
+      String[] imageSources = new String[nameCount];
+      for (int i = 0; i < nameCount; i++) {
+        int nameLength = data.getShort();
+        if (nameLength < 0 || nameLength > data.remaining()) {
+          throw new IOException("The compiled level is truncated");
         }
-        moveRight = Boolean.parseBoolean(assetInfo[3]);
-        newVelocity =
-            new Velocity(
-                (moveRight ? 1 : -1) * newVelocity.getHorizontal(), newVelocity.getVertical());
+        byte[] name = new byte[nameLength];
+        data.get(name);
+        assetNames[i] = resolveAssetName(new String(name, StandardCharsets.UTF_8));
+        imageSources[i] = assetNames[i] == null ? null : getAssetPath(assetNames[i]);
       }
-      Sprite newSprite = null;
-      if (specialSprites.contains(assetName)) {
-        switch (assetName) {
-          case TURTLES:
-            newSprite = new MagicianSprite(level, assetName, imageSrc, spawnPos, newVelocity);
-            break;
-          case BIKE:
-            newSprite = new BikeSprite(level, assetName, imageSrc, spawnPos, newVelocity);
-            break;
-          case BULLDOZER:
-            newSprite = new SolidPushSprite(level, assetName, imageSrc, spawnPos, newVelocity);
-            break;
+      int spriteCount = data.getInt();
+      for (int i = 0; i < spriteCount; i++) {
+        int nameIndex = data.getShort();
+        int flags = data.get();
+        float x = data.getFloat();
+        float y = data.getFloat();
+        if (nameIndex < 0 || nameIndex >= nameCount) {
+          throw new IOException("The compiled level refers to an unknown asset name: " + nameIndex);
         }
-      } else {
-        assert assetType != null;
-        switch (assetType) {
-          case MOVING_OBSTACLE:
-            newSprite = new Obstacle(level, assetName, imageSrc, spawnPos, newVelocity);
-            break;
-          case DRIVER_OBJECT:
-            newSprite = new Driver(level, assetName, imageSrc, spawnPos, newVelocity);
-            break;
-          case PASSIVE_OBSTACLE:
-            newSprite = new Obstacle(level, assetName, imageSrc, spawnPos);
-            break;
-          case SOLID_TILE:
-          case FRIENDLY_TILE:
-            newSprite = new Sprite(level, assetName, imageSrc, spawnPos);
-            break;
+        if (assetNames[nameIndex] == null) {
+          continue;
         }
+        createSprite(
+            assetNames[nameIndex],
+            imageSources[nameIndex],
+            x,
+            y,
+            (flags & LevelCompiler.HAS_DIRECTION) != 0,
+            (flags & LevelCompiler.MOVE_RIGHT) != 0);
       }
-      if (newSprite != null) {
-        spriteMap.add(newSprite);
-      }
+    } catch (BufferUnderflowException e) {
+      throw new IOException("The compiled level is truncated", e);
     }
     addPlayer();
   }
 
+  /**
+   * Converts an asset name from a level file into the name used internally
+   *
+   * @param rawName The asset name as written in the level file
+   * @return The internal asset name, or null if the asset is unknown
+   */
+  private String resolveAssetName(String rawName) {
+    String assetName = rawName.toLowerCase();
+    if (assetName.equals("turtle")) {
+      assetName = TURTLES;
+    }
+    if (!assetTypes.containsKey(assetName) && !specialSprites.contains(assetName)) {
+      log.log(java.util.logging.Level.WARNING, "Tried to load unknown asset type: " + assetName);
+      return null;
+    }
+    return assetName;
+  }
+
+  /**
+   * Creates the appropriate Sprite subclass for an asset and adds it to the Sprite Map
+   *
+   * @param assetName The internal name of the asset
+   * @param imageSrc The path to the image of the asset
+   * @param x The x coordinate to spawn the Sprite at
+   * @param y The y coordinate to spawn the Sprite at
+   * @param hasDirection True if the level specifies a direction of movement for the asset
+   * @param moveRight True if the asset moves to the right, else False
+   */
+  private void createSprite(
+      String assetName,
+      String imageSrc,
+      float x,
+      float y,
+      boolean hasDirection,
+      boolean moveRight) {
+    AssetType assetType = assetTypes.get(assetName);
+    Position spawnPos = new Position(x, y);
+    Velocity newVelocity = new Velocity(0, 0);
+    if (hasDirection) {
+      if (speedInfo.containsKey(assetName)) {
+        newVelocity = speedInfo.get(assetName);
+      }
+      newVelocity =
+          new Velocity(
+              (moveRight ? 1 : -1) * newVelocity.getHorizontal(), newVelocity.getVertical());
+    }
+    Sprite newSprite = null;
+    if (specialSprites.contains(assetName)) {
+      switch (assetName) {
+        case TURTLES:
+          newSprite = new MagicianSprite(level, assetName, imageSrc, spawnPos, newVelocity);
+          break;
+        case BIKE:
+          newSprite = new BikeSprite(level, assetName, imageSrc, spawnPos, newVelocity);
+          break;
+        case BULLDOZER:
+          newSprite = new SolidPushSprite(level, assetName, imageSrc, spawnPos, newVelocity);
+          break;
+      }
+    } else {
+      assert assetType != null;
+      switch (assetType) {
+        case MOVING_OBSTACLE:
+          newSprite = new Obstacle(level, assetName, imageSrc, spawnPos, newVelocity);
+          break;
+        case DRIVER_OBJECT:
+          newSprite = new Driver(level, assetName, imageSrc, spawnPos, newVelocity);
+          break;
+        case PASSIVE_OBSTACLE:
+          newSprite = new Obstacle(level, assetName, imageSrc, spawnPos);
+          break;
+        case SOLID_TILE:
+        case FRIENDLY_TILE:
+          newSprite = new Sprite(level, assetName, imageSrc, spawnPos);
+          break;
+      }
+    }
+    if (newSprite != null) {
+      addSprite(newSprite);
+    }
+  }
+
   /**
    * Helper method to identify the type of sprite based on the Sprite's name
    *
@@ -324,5 +940,6 @@ public class SpriteAssetManager {
     player.detachDriver();
     log.info("Resetting sprite to " + PLAYER_START_POS);
     player.setLocation(PLAYER_START_POS);
+    player.skipInterpolation();
   }
 }
@@ -0,0 +1,179 @@
+package core;
+
+import base.Sprite;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Image;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draws the Sprites of a level layer by layer (see {@link Sprite#getRenderLayer()}). Sprites that
+ * are invisible or lie entirely outside of the viewport are culled first. Within a layer, Sprites
+ * are grouped by their shared image so that every run of Sprites using the same texture is drawn
+ * as a single batch between {@link Image#startUse()} and {@link Image#endUse()}. The groups are
+ * ordered by texture id (see {@link Sprite#getTextureId()}) and keep the Sprite Map order within
+ * them, so every run draws in the same order.
+ */
+public class SpriteRenderer {
+  /** Reusable buckets holding the Sprites to draw on each layer */
+  private final List<List<Sprite>> layers = new ArrayList<>();
+  /** Reusable buffer holding the Sprites near the viewport */
+  private final List<Sprite> candidates = new ArrayList<>();
+  /** Reusable counts of the Sprites using each texture id, offset by one */
+  private int[] textureCounts = new int[64];
+  /** Reusable buffer a layer is grouped into */
+  private Sprite[] grouped = new Sprite[256];
+  /** The area of the level that is drawn on the screen */
+  private float viewLeft, viewTop, viewWidth, viewHeight;
+
+  /** Initialises a renderer with an empty bucket for every render layer */
+  public SpriteRenderer() {
+    for (int i = 0; i < Sprite.RENDER_LAYER_COUNT; i++) {
+      layers.add(new ArrayList<>());
+    }
+    setViewport(0, 0, App.getScreenWidth(), App.getScreenHeight());
+  }
+
+  /**
+   * Changes the area of the level that is drawn on the screen, e.g. to follow a scrolling camera
+   *
+   * @param left The x coordinate of the left edge of the viewport
+   * @param top The y coordinate of the top edge of the viewport
+   * @param width The width of the viewport
+   * @param height The height of the viewport
+   */
+  public void setViewport(float left, float top, float width, float height) {
+    viewLeft = left;
+    viewTop = top;
+    viewWidth = width;
+    viewHeight = height;
+  }
+
+  /**
+   * Draws the visible Sprites of a level layer by layer, batching Sprites that share an image
+   *
+   * @param g The Graphics object to render on
+   * @param spriteManager The Sprite Manager holding the Sprites to draw
+   * @param skipStatic True to skip static Sprites, which are drawn by the static layer
+   */
+  public void render(Graphics g, SpriteAssetManager spriteManager, boolean skipStatic) {
+    for (List<Sprite> layer : layers) {
+      layer.clear();
+    }
+    /* the index works on hitboxes at their simulation positions, which are slightly smaller than
+     * the drawn images and at most a step's movement away from where they are drawn */
+    float margin = App.getTileLength();
+    candidates.clear();
+    spriteManager.collectSpritesIn(
+        viewLeft - margin,
+        viewTop - margin,
+        viewLeft + viewWidth + margin,
+        viewTop + viewHeight + margin,
+        candidates);
+    for (int i = 0; i < candidates.size(); i++) {
+      Sprite sprite = candidates.get(i);
+      if ((skipStatic && sprite.isStatic()) || !sprite.isVisible() || !isInView(sprite)) {
+        continue;
+      }
+      layers.get(sprite.getRenderLayer()).add(sprite);
+    }
+    boolean scrolled = viewLeft != 0 || viewTop != 0;
+    if (scrolled) {
+      g.translate(-viewLeft, -viewTop);
+    }
+    for (List<Sprite> layer : layers) {
+      groupByTexture(layer);
+      renderLayer(g, layer);
+    }
+    if (scrolled) {
+      g.translate(viewLeft, viewTop);
+    }
+  }
+
+  /**
+   * Groups the Sprites of a layer by texture id, keeping their order within each group. A counting
+   * sort is used, which runs in linear time and, unlike a Comparator sort, does not allocate.
+   *
+   * @param layer The Sprites of the layer
+   */
+  private void groupByTexture(List<Sprite> layer) {
+    int size = layer.size();
+    /* ids start at -1 for images outside the texture cache, so keys are offset by one */
+    int keyCount = 0;
+    for (int i = 0; i < size; i++) {
+      keyCount = Math.max(keyCount, layer.get(i).getTextureId() + 2);
+    }
+    if (textureCounts.length < keyCount + 1) {
+      textureCounts = new int[Math.max(keyCount + 1, textureCounts.length * 2)];
+    }
+    if (grouped.length < size) {
+      grouped = new Sprite[Math.max(size, grouped.length * 2)];
+    }
+    Arrays.fill(textureCounts, 0, keyCount + 1, 0);
+    for (int i = 0; i < size; i++) {
+      textureCounts[layer.get(i).getTextureId() + 2]++;
+    }
+    for (int key = 1; key <= keyCount; key++) {
+      textureCounts[key] += textureCounts[key - 1];
+    }
+    for (int i = 0; i < size; i++) {
+      Sprite sprite = layer.get(i);
+      grouped[textureCounts[sprite.getTextureId() + 1]++] = sprite;
+    }
+    for (int i = 0; i < size; i++) {
+      layer.set(i, grouped[i]);
+      grouped[i] = null;
+    }
+  }
+
+  /**
+   * Checks whether any part of a Sprite's image lies within the viewport, at the interpolated
+   * position it is drawn at rather than its simulation position
+   *
+   * @param sprite The Sprite to check
+   * @return True if the Sprite would be drawn on screen, else False
+   */
+  private boolean isInView(Sprite sprite) {
+    float left = sprite.getDrawAnchorX();
+    float top = sprite.getDrawAnchorY();
+    return left + sprite.getWidth() >= viewLeft
+        && left <= viewLeft + viewWidth
+        && top + sprite.getHeight() >= viewTop
+        && top <= viewTop + viewHeight;
+  }
+
+  /**
+   * Draws the Sprites of a single layer, starting a new batch whenever the image changes
+   *
+   * @param g The Graphics object to render on
+   * @param layer The Sprites of the layer, grouped by image
+   */
+  private void renderLayer(Graphics g, List<Sprite> layer) {
+    Image batchImage = null;
+    for (int i = 0; i < layer.size(); i++) {
+      Sprite sprite = layer.get(i);
+      Image image = sprite.getImage();
+      if (!sprite.isBatchable() || image == null) {
+        if (batchImage != null) {
+          batchImage.endUse();
+          batchImage = null;
+        }
+        sprite.render(g);
+        continue;
+      }
+      if (image != batchImage) {
+        if (batchImage != null) {
+          batchImage.endUse();
+        }
+        batchImage = image;
+        batchImage.startUse();
+      }
+      sprite.renderEmbedded();
+    }
+    if (batchImage != null) {
+      batchImage.endUse();
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package core;
+
+import base.Sprite;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Caches every static Sprite of a level (see {@link Sprite#isStatic()}) in a single screen-sized
+ * render target, so the background tiles cost a single draw call per frame. The cache is rebuilt
+ * only when the Sprite Manager reports that the set of static Sprites has changed.
+ */
+public class StaticLayer {
+  /** Used for internal JVM logging */
+  private final Logger log = Logger.getLogger(getClass().getSimpleName());
+  /** The Sprite Manager owning the static Sprites */
+  private final SpriteAssetManager spriteManager;
+  /** The render target holding the static Sprites, null until first built */
+  private Image layerImage;
+  /** The static layer version of the Sprite Manager that the render target reflects */
+  private int builtVersion = -1;
+  /** Set once render targets turn out to be unsupported, in which case nothing is cached */
+  private boolean unsupported = false;
+
+  /**
+   * Initialises the static layer of a level
+   *
+   * @param spriteManager The Sprite Manager owning the static Sprites
+   */
+  public StaticLayer(SpriteAssetManager spriteManager) {
+    this.spriteManager = spriteManager;
+  }
+
+  /**
+   * Draws the cached static Sprites, rebuilding the cache first if the static Sprites changed
+   *
+   * @param g The Graphics object to render on
+   * @return True if the static Sprites were drawn, False if they must be drawn individually
+   */
+  public boolean render(Graphics g) {
+    if (unsupported) {
+      return false;
+    }
+    if (layerImage == null || builtVersion != spriteManager.getStaticLayerVersion()) {
+      try {
+        rebuild();
+      } catch (SlickException e) {
+        log.log(java.util.logging.Level.WARNING, "Render targets unavailable, not caching", e);
+        unsupported = true;
+        dispose();
+        return false;
+      }
+    }
+    g.drawImage(layerImage, 0, 0);
+    return true;
+  }
+
+  /**
+   * Redraws every static Sprite into the render target
+   *
+   * @throws SlickException If the render target could not be created or drawn on
+   */
+  private void rebuild() throws SlickException {
+    if (layerImage == null) {
+      layerImage = new Image(App.getScreenWidth(), App.getScreenHeight());
+    }
+    Graphics layerGraphics = layerImage.getGraphics();
+    layerGraphics.clear();
+    List<Sprite> sprites = spriteManager.getSpriteMap();
+    for (int i = 0; i < sprites.size(); i++) {
+      Sprite sprite = sprites.get(i);
+      if (sprite.isStatic()) {
+        sprite.render(layerGraphics);
+      }
+    }
+    layerGraphics.flush();
+    builtVersion = spriteManager.getStaticLayerVersion();
+  }
+
+  /** Frees the render target */
+  public void dispose() {
+    if (layerImage == null) {
+      return;
+    }
+    try {
+      layerImage.destroy();
+    } catch (SlickException e) {
+      e.printStackTrace();
+    }
+    layerImage = null;
+  }
+}
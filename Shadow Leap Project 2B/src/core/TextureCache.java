@@ -0,0 +1,169 @@
+package core;
+
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * A process-wide, reference-counted cache of asset images keyed by their asset path (see {@link
+ * SpriteAssetManager#getAssetPath(String)}). Every distinct image is decoded and uploaded once and
+ * shared between all Sprites that use it. Flipped variants are cached as derived images that
+ * share the texture of their source image. Every cached image has a small integer id, which never
+ * changes while it is cached and is handed out in loading order.
+ */
+public final class TextureCache {
+  /** Suffix appended to the key of a horizontally flipped variant */
+  private static final String FLIPPED_SUFFIX = "#flipped";
+  /** Used for internal JVM logging */
+  private static final Logger log = Logger.getLogger(TextureCache.class.getSimpleName());
+  /** All currently loaded images, keyed by asset path (plus variant suffix) */
+  private static final Map<String, CachedImage> images = new HashMap<>();
+  /** The id given to the next image loaded */
+  private static int nextId;
+
+  private TextureCache() {}
+
+  /**
+   * Gets a shared instance of the image at a path, loading it if it is not cached yet. Every call
+   * must be balanced by a call to {@link #release(String)}.
+   *
+   * @param path The asset path of the image
+   * @return The shared Image
+   * @throws SlickException If the image could not be loaded
+   */
+  public static synchronized Image acquire(String path) throws SlickException {
+    CachedImage cached = images.get(path);
+    if (cached == null) {
+      cached = new CachedImage(new Image(path), null, nextId++);
+      images.put(path, cached);
+      log.fine("Loaded texture " + path);
+    }
+    cached.references++;
+    return cached.image;
+  }
+
+  /**
+   * Gets a shared, horizontally flipped variant of the image at a path. Every call must be
+   * balanced by a call to {@link #releaseFlipped(String)}.
+   *
+   * @param path The asset path of the source image
+   * @return The shared flipped Image
+   * @throws SlickException If the source image could not be loaded
+   */
+  public static synchronized Image acquireFlipped(String path) throws SlickException {
+    String key = path + FLIPPED_SUFFIX;
+    CachedImage cached = images.get(key);
+    if (cached == null) {
+      /* the derived image shares the source texture, so it keeps the source alive */
+      Image source = acquire(path);
+      cached = new CachedImage(source.getFlippedCopy(true, false), path, nextId++);
+      images.put(key, cached);
+    }
+    cached.references++;
+    return cached.image;
+  }
+
+  /**
+   * Gets either the normal or flipped variant of an image
+   *
+   * @param path The asset path of the source image
+   * @param flipped True for the horizontally flipped variant
+   * @return The shared Image
+   * @throws SlickException If the image could not be loaded
+   */
+  public static Image acquire(String path, boolean flipped) throws SlickException {
+    return flipped ? acquireFlipped(path) : acquire(path);
+  }
+
+  /**
+   * Gets the id of a cached image, which Sprites sharing the image can be grouped by
+   *
+   * @param path The asset path of the source image
+   * @param flipped True for the horizontally flipped variant
+   * @return The id of the image, or -1 if it is not cached
+   */
+  public static synchronized int getId(String path, boolean flipped) {
+    CachedImage cached = images.get(flipped ? path + FLIPPED_SUFFIX : path);
+    return cached == null ? -1 : cached.id;
+  }
+
+  /**
+   * Releases a reference to the image at a path, destroying its texture once it is unused
+   *
+   * @param path The asset path of the image
+   */
+  public static synchronized void release(String path) {
+    releaseKey(path);
+  }
+
+  /**
+   * Releases a reference to the flipped variant of the image at a path
+   *
+   * @param path The asset path of the source image
+   */
+  public static synchronized void releaseFlipped(String path) {
+    releaseKey(path + FLIPPED_SUFFIX);
+  }
+
+  /**
+   * Releases a reference to either the normal or flipped variant of an image
+   *
+   * @param path The asset path of the source image
+   * @param flipped True for the horizontally flipped variant
+   */
+  public static void release(String path, boolean flipped) {
+    if (flipped) {
+      releaseFlipped(path);
+    } else {
+      release(path);
+    }
+  }
+
+  /**
+   * Decrements the reference count of a cached image and frees it when it reaches zero
+   *
+   * @param key The cache key of the image
+   */
+  private static void releaseKey(String key) {
+    CachedImage cached = images.get(key);
+    if (cached == null) {
+      return;
+    }
+    if (--cached.references > 0) {
+      return;
+    }
+    images.remove(key);
+    if (cached.source != null) {
+      /* derived images share their texture, so only the source reference is dropped */
+      releaseKey(cached.source);
+      return;
+    }
+    try {
+      cached.image.destroy();
+      log.fine("Destroyed texture " + key);
+    } catch (SlickException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /** A cached image and the number of references held to it */
+  private static class CachedImage {
+    /** The shared image */
+    private final Image image;
+    /** The key of the image this one is derived from, null for source images */
+    private final String source;
+    /** The id of the image */
+    private final int id;
+    /** The number of outstanding references */
+    private int references;
+
+    private CachedImage(Image image, String source, int id) {
+      this.image = image;
+      this.source = source;
+      this.id = id;
+    }
+  }
+}
@@ -4,6 +4,7 @@ import base.Obstacle;
 import utilities.Velocity;
 import core.Level;
 import utilities.Position;
+import utilities.StateBuffer;
 
 public class BikeSprite extends Obstacle {
 
@@ -11,6 +12,8 @@ public class BikeSprite extends Obstacle {
   private static final int REVERSE_MIN_BOUND = 24;
   /** The right bound that the bike reverses at */
   private static final int REVERSE_MAX_BOUND = 1000;
+  /** The velocity the bike switches to when it next reverses, kept to avoid reallocating it */
+  private Velocity reverseVelocity;
 
   /**
    * Initialises a new Sprite object
@@ -28,14 +31,38 @@ public class BikeSprite extends Obstacle {
       Position centerPos,
       Velocity speedInfo) {
     super(spawnLevel, obstacleName, imageSrc, centerPos, speedInfo);
+    reverseVelocity = speedInfo.getOppositeVelocity(true, false);
     if (speedInfo.getHorizontal() < 0) {
       reverseImage();
     }
   }
 
+  /**
+   * Writes the velocity the Bike Sprite reverses to along with the state of the MovingSprite
+   *
+   * @param out The buffer to write to
+   */
+  @Override
+  public void writeState(StateBuffer out) {
+    super.writeState(out);
+    out.writeFloat(reverseVelocity.getHorizontal());
+    out.writeFloat(reverseVelocity.getVertical());
+  }
+
+  /**
+   * Restores the velocity the Bike Sprite reverses to along with the state of the MovingSprite
+   *
+   * @param in The buffer to read from
+   */
+  @Override
+  public void readState(StateBuffer in) {
+    super.readState(in);
+    reverseVelocity = readVelocity(in, reverseVelocity);
+  }
+
   /** Changes the current image representation to a horizontally flipped one */
   private void reverseImage() {
-    this.setImage(getImage().getFlippedCopy(true, false));
+    setFlipped(!isFlipped());
   }
 
   /**
@@ -45,15 +72,26 @@ public class BikeSprite extends Obstacle {
    */
   @Override
   public void onTimeTick(int delta) {
-    float xApprox = getLocation().getX();
+    float xApprox = getX();
     if (xApprox <= REVERSE_MIN_BOUND || xApprox >= REVERSE_MAX_BOUND) {
-      setMovementVelocity(getMovementVelocity().getOppositeVelocity(true, false));
+      Velocity currentVelocity = getMovementVelocity();
+      setMovementVelocity(reverseVelocity);
+      reverseVelocity = currentVelocity;
       reverseImage();
       /* snaps the x value to the nearest boundary to maintain consistency */
       float snapX = xApprox <= REVERSE_MIN_BOUND ? REVERSE_MIN_BOUND : REVERSE_MAX_BOUND;
-      Position resetPosition = new Position(snapX, getLocation().getY());
-      setLocation(resetPosition);
+      setLocation(snapX, getY());
     }
     super.onTimeTick(delta);
   }
+
+  /**
+   * A BikeSprite has per-tick behaviour, so it is ticked individually
+   *
+   * @return False
+   */
+  @Override
+  public boolean hasLinearMotion() {
+    return false;
+  }
 }
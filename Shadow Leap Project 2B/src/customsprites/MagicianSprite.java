@@ -4,6 +4,7 @@ import base.Driver;
 import core.Level;
 import org.newdawn.slick.Graphics;
 import utilities.Position;
+import utilities.StateBuffer;
 import utilities.Velocity;
 
 /** Represents a Sprite that can disappear and reappear */
@@ -51,6 +52,50 @@ public class MagicianSprite extends Driver {
     super.onTimeTick(delta);
   }
 
+  /**
+   * Writes the visibility of the Magician Sprite and its timer along with the state of the Driver
+   *
+   * @param out The buffer to write to
+   */
+  @Override
+  public void writeState(StateBuffer out) {
+    super.writeState(out);
+    out.writeBoolean(visible);
+    out.writeFloat(currentTimeElapsed);
+  }
+
+  /**
+   * Restores the visibility of the Magician Sprite and its timer along with the state of the Driver
+   *
+   * @param in The buffer to read from
+   */
+  @Override
+  public void readState(StateBuffer in) {
+    super.readState(in);
+    visible = in.readBoolean();
+    currentTimeElapsed = in.readFloat();
+  }
+
+  /**
+   * A MagicianSprite is never static since it periodically disappears
+   *
+   * @return False
+   */
+  @Override
+  public boolean isStatic() {
+    return false;
+  }
+
+  /**
+   * The MagicianSprite is only visible while it has not disappeared
+   *
+   * @return True if the MagicianSprite is visible, else False
+   */
+  @Override
+  public boolean isVisible() {
+    return visible;
+  }
+
   /**
    * Override method that only renders the Sprite if it is supposed to be visible
    *
@@ -58,6 +103,6 @@ public class MagicianSprite extends Driver {
    */
   @Override
   public void render(Graphics g) {
-    if (visible) super.render(g);
+    if (isVisible()) super.render(g);
   }
 }
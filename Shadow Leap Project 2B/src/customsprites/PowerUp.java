@@ -4,6 +4,7 @@ import base.*;
 import core.App;
 import core.Level;
 import utilities.Position;
+import utilities.StateBuffer;
 
 import java.util.logging.Logger;
 
@@ -36,6 +37,16 @@ public class PowerUp extends Sprite implements TimeSupport, PassengerSupport, Co
     super(spawnLevel, name, imgSrc, centerPos);
   }
 
+  /**
+   * Takes the Power-Up off the level once it has been collected. Its function is applied when the
+   * level processes the transitions published during the update.
+   */
+  public void collect() {
+    detachDriver();
+    getLevel().getSpriteManager().removeSprite(this);
+    getLevel().getEventBus().publish(LevelState.PowerUpCollected, this);
+  }
+
   /**
    * Applies the function of the Power-Up
    *
@@ -45,7 +56,16 @@ public class PowerUp extends Sprite implements TimeSupport, PassengerSupport, Co
     if (sprite instanceof Player) {
       ((Player) sprite).addLife();
     }
-    getLevel().getSpriteManager().removeSprite(this);
+  }
+
+  /**
+   * Power-Ups are drawn on top of the driver they ride on
+   *
+   * @return The rider render layer
+   */
+  @Override
+  public int getRenderLayer() {
+    return RENDER_LAYER_RIDERS;
   }
 
   /** No functionality specified for driver detection */
@@ -67,6 +87,35 @@ public class PowerUp extends Sprite implements TimeSupport, PassengerSupport, Co
     driver.addRider(this);
   }
 
+  /**
+   * Writes the driver of the Power-Up and its timers along with the state of the Sprite
+   *
+   * @param out The buffer to write to
+   */
+  @Override
+  public void writeState(StateBuffer out) {
+    super.writeState(out);
+    out.writeInt(driver == null ? -1 : driver.getEntityIndex());
+    out.writeFloat(deathTimer);
+    out.writeFloat(moveTimer);
+    out.writeBoolean(moveRight);
+  }
+
+  /**
+   * Restores the driver of the Power-Up and its timers along with the state of the Sprite
+   *
+   * @param in The buffer to read from
+   */
+  @Override
+  public void readState(StateBuffer in) {
+    super.readState(in);
+    int driverEntity = in.readInt();
+    driver = driverEntity < 0 ? null : (Driver) getEntityStore().getView(driverEntity);
+    deathTimer = in.readFloat();
+    moveTimer = in.readFloat();
+    moveRight = in.readBoolean();
+  }
+
   /**
    * Handles the death and movement of the Sprite as per set characteristics
    *
@@ -79,6 +128,7 @@ public class PowerUp extends Sprite implements TimeSupport, PassengerSupport, Co
     deathTimer += delta;
     if (deathTimer / 1000 > EXPIRY_TIME) {
       log.info("Deleted powerup. F F F F F");
+      detachDriver();
       getLevel().getSpriteManager().removeSprite(this);
     }
     /* Checks if the Sprite must move */
@@ -108,11 +158,12 @@ public class PowerUp extends Sprite implements TimeSupport, PassengerSupport, Co
    * @return True if the Power-Up was succesfully moved to the right, else False
    */
   private boolean tryShuffleRight() {
-    float newX = getLocation().getX() + App.getTileLength();
-    Position position = new Position(newX, driver.getLocation().getY());
-    boolean canMove = driver.getHitBox().intersects(position, App.getTileLength(), App.getTileLength());
+    float newX = getX() + App.getTileLength();
+    float newY = driver.getY();
+    boolean canMove =
+        driver.getHitBox().intersects(newX, newY, App.getTileLength(), App.getTileLength());
     if (canMove) {
-      this.setLocation(position);
+      this.setLocation(newX, newY);
       return true;
     }
     return false;
@@ -124,11 +175,12 @@ public class PowerUp extends Sprite implements TimeSupport, PassengerSupport, Co
    * @return True if the Power-Up was succesfully moved to the left, else False
    */
   private boolean tryShuffleLeft() {
-    float newX = getLocation().getX() - App.getTileLength();
-    Position position = new Position(newX, driver.getLocation().getY());
-    boolean canMove = driver.getHitBox().intersects(position, App.getTileLength(), App.getTileLength());
+    float newX = getX() - App.getTileLength();
+    float newY = driver.getY();
+    boolean canMove =
+        driver.getHitBox().intersects(newX, newY, App.getTileLength(), App.getTileLength());
     if (canMove) {
-      this.setLocation(position);
+      this.setLocation(newX, newY);
       return true;
     }
     return false;
@@ -1,13 +1,14 @@
 package customsprites;
 
+import base.Capability;
 import base.MovingSprite;
-import base.PassengerSupport;
 import base.Sprite;
 import utilities.Velocity;
 import core.Level;
 import utilities.BoundingBox;
 import utilities.Position;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -15,6 +16,8 @@ import java.util.List;
  * motion.
  */
 public class SolidPushSprite extends MovingSprite {
+  /** Reusable buffer holding the passengers touching the Sprite during a tick */
+  private final List<Sprite> pushedSprites = new ArrayList<>();
 
   /**
    * Initialises a new Moving Sprite object
@@ -28,7 +31,7 @@ public class SolidPushSprite extends MovingSprite {
   public SolidPushSprite(
       Level spawnLevel, String name, String imageSrc, Position centerPos, Velocity velocity) {
     super(spawnLevel, name, imageSrc, centerPos, velocity);
-    super.setHitBox(new BoundingBox(getImage(), getLocation(), true));
+    super.setHitBox(new BoundingBox(getWidth(), getHeight(), getLocation(), true));
   }
 
   /**
@@ -38,15 +41,37 @@ public class SolidPushSprite extends MovingSprite {
    */
   @Override
   public void onTimeTick(int delta) {
-    List<Sprite> intersectingSprites =
-        getLevel()
-            .getSpriteManager()
-            .getIntersectingSprites(this, s -> s instanceof PassengerSupport);
-    for (Sprite sprite : intersectingSprites) {
-      if (sprite.getLocation().getX() < this.getBottomLeftAnchor().getX()) continue;
-      float pushX = sprite.getLocation().getX() + getMovementVelocity().getHorizontal() * delta;
-      sprite.setLocation(new Position(pushX, getLocation().getY()));
+    pushedSprites.clear();
+    getLevel()
+        .getSpriteManager()
+        .collectIntersectingSprites(this, Capability.PASSENGER, pushedSprites);
+    for (int i = 0; i < pushedSprites.size(); i++) {
+      Sprite sprite = pushedSprites.get(i);
+      if (sprite.getX() < this.getAnchorX()) continue;
+      float pushX = sprite.getX() + getMovementVelocity().getHorizontal() * delta;
+      sprite.setLocation(pushX, getY());
     }
     super.onTimeTick(delta);
   }
+
+  /**
+   * A SolidPushSprite has per-tick behaviour, so it is ticked individually
+   *
+   * @return False
+   */
+  @Override
+  public boolean hasLinearMotion() {
+    return false;
+  }
+
+  /**
+   * A SolidPushSprite pushes the Sprites in front of it on its tick, so it is never ticked
+   * alongside other Sprites
+   *
+   * @return False
+   */
+  @Override
+  public boolean ticksIndependently() {
+    return false;
+  }
 }
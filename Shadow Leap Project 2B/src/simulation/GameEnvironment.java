@@ -0,0 +1,223 @@
+package simulation;
+
+import base.Player;
+import core.App;
+import core.Level;
+import core.LevelHost;
+import org.newdawn.slick.Input;
+import utilities.SeededRandom;
+
+/**
+ * A reinforcement-learning environment over a single headless level, in the style of Gym: {@link
+ * #reset(long, byte[], int)} starts an episode, and {@link #step(int, byte[], int)} applies an
+ * action, runs the game for a fixed number of simulation steps and reports the reward earned. An
+ * episode ends when the level is finished or the game is over.
+ *
+ * <p>Observations are written into caller-supplied buffers, so stepping does not allocate. An
+ * observation is the grid of tile types produced by an {@link ObservationEncoder}.
+ */
+public class GameEnvironment implements LevelHost {
+  /** The action that presses no key */
+  public static final int NO_OP = 0;
+  /** The action that hops up */
+  public static final int UP = 1;
+  /** The action that hops down */
+  public static final int DOWN = 2;
+  /** The action that hops left */
+  public static final int LEFT = 3;
+  /** The action that hops right */
+  public static final int RIGHT = 4;
+  /** The number of actions */
+  public static final int ACTION_COUNT = 5;
+  /** The number of simulation steps an action lasts by default, 100 ms of game time */
+  public static final int DEFAULT_STEPS_PER_ACTION = 10;
+  /** The length of an observation */
+  public static final int OBSERVATION_SIZE = ObservationEncoder.SIZE;
+  /** The reward for reaching a row closer to the holes than before in the current life */
+  public static final float ROW_REWARD = 0.1f;
+  /** The reward for filling a hole */
+  public static final float HOLE_REWARD = 1;
+  /** The reward for losing a life */
+  public static final float DEATH_REWARD = -1;
+  /** The key pressed by each action */
+  private static final int[] ACTION_KEYS = {
+    -1, Input.KEY_UP, Input.KEY_DOWN, Input.KEY_LEFT, Input.KEY_RIGHT
+  };
+  /** The world every episode is played on */
+  private final int startLevel;
+  /** The number of simulation steps an action lasts */
+  private final int stepsPerAction;
+  /** Writes the observations */
+  private final ObservationEncoder encoder = new ObservationEncoder();
+  /** Whether levels position their constant-velocity movers analytically */
+  private boolean analyticMotion;
+  /** The level of the current episode */
+  private Level level;
+  /** Whether the current episode has ended */
+  private boolean done;
+  /** The lives the player had after the previous action */
+  private int lives;
+  /** The holes filled after the previous action */
+  private int filledHoles;
+  /** The row closest to the holes the player has reached in the current life */
+  private int bestRow;
+  /** The number of actions taken in the current episode */
+  private long actionCount;
+
+  /**
+   * Initialises an environment whose actions last {@link #DEFAULT_STEPS_PER_ACTION} steps
+   *
+   * @param startLevel The world every episode is played on
+   */
+  public GameEnvironment(int startLevel) {
+    this(startLevel, DEFAULT_STEPS_PER_ACTION);
+  }
+
+  /**
+   * Initialises an environment. No episode is running until {@link #reset(long, byte[], int)} is
+   * called.
+   *
+   * @param startLevel The world every episode is played on
+   * @param stepsPerAction The number of simulation steps an action lasts
+   */
+  public GameEnvironment(int startLevel, int stepsPerAction) {
+    if (stepsPerAction < 1) {
+      throw new IllegalArgumentException("An action must last at least one step");
+    }
+    this.startLevel = startLevel;
+    this.stepsPerAction = stepsPerAction;
+  }
+
+  /**
+   * Specifies whether the levels of following episodes position their constant-velocity movers
+   * analytically (see {@link Level#setAnalyticMotion(boolean)}). Faster, but no longer identical
+   * to the game played in {@link App}.
+   *
+   * @param enabled True to compute the movers' positions from the time passed, else False
+   */
+  public void setAnalyticMotion(boolean enabled) {
+    analyticMotion = enabled;
+  }
+
+  /**
+   * Starts a new episode. Episodes with the same seed play out identically for the same actions.
+   *
+   * @param seed The seed of the episode
+   * @param observation The buffer to write the first observation to
+   * @param offset The position of the observation in the buffer
+   */
+  public void reset(long seed, byte[] observation, int offset) {
+    level = new Level(startLevel, true, SeededRandom.deriveSeed(seed, startLevel), this);
+    level.setAnalyticMotion(analyticMotion);
+    done = false;
+    lives = getPlayer().getLives();
+    filledHoles = 0;
+    bestRow = getPlayerRow();
+    actionCount = 0;
+    encoder.encode(level, observation, offset);
+  }
+
+  /**
+   * Applies an action and runs the game until the action is over or the episode ends
+   *
+   * @param action One of {@link #NO_OP}, {@link #UP}, {@link #DOWN}, {@link #LEFT} or {@link
+   *     #RIGHT}
+   * @param observation The buffer to write the resulting observation to
+   * @param offset The position of the observation in the buffer
+   * @return The reward earned by the action
+   * @throws IllegalStateException If the episode has ended or was never started
+   */
+  public float step(int action, byte[] observation, int offset) {
+    if (level == null || done) {
+      throw new IllegalStateException("The episode has ended, reset the environment first");
+    }
+    int key = ACTION_KEYS[action];
+    if (key >= 0) {
+      level.onKeyPressed(key, (char) 0);
+    }
+    for (int i = 0; i < stepsPerAction && !done; i++) {
+      level.update(App.getSimulationStep());
+    }
+    actionCount++;
+    float reward = 0;
+    int newLives = getPlayer().getLives();
+    if (newLives < lives || (done && level.getFilledHoleCount() == filledHoles)) {
+      /* the last life is never taken away, the game is simply over */
+      reward += DEATH_REWARD;
+      bestRow = getPlayerRow();
+    }
+    if (level.getFilledHoleCount() > filledHoles) {
+      reward += HOLE_REWARD * (level.getFilledHoleCount() - filledHoles);
+      bestRow = getPlayerRow();
+    }
+    int row = getPlayerRow();
+    if (row < bestRow) {
+      reward += ROW_REWARD * (bestRow - row);
+      bestRow = row;
+    }
+    lives = newLives;
+    filledHoles = level.getFilledHoleCount();
+    encoder.encode(level, observation, offset);
+    return reward;
+  }
+
+  /**
+   * Specifies whether the current episode has ended
+   *
+   * @return True if the level was finished or the game is over, else False
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Gets the number of actions taken in the current episode
+   *
+   * @return The number of actions taken
+   */
+  public long getActionCount() {
+    return actionCount;
+  }
+
+  /**
+   * Gets the level of the current episode
+   *
+   * @return The current Level, null before the first reset
+   */
+  public Level getLevel() {
+    return level;
+  }
+
+  private Player getPlayer() {
+    return level.getSpriteManager().getPlayer();
+  }
+
+  /**
+   * Gets the observation row the player is in
+   *
+   * @return The row of the cell whose center is closest to the player
+   */
+  private int getPlayerRow() {
+    return Math.round(getPlayer().getY() / App.getTileLength());
+  }
+
+  /**
+   * Ends the episode once the level has been finished
+   *
+   * @param level The level that has been completed
+   */
+  @Override
+  public void onLevelFinished(Level level) {
+    done = true;
+  }
+
+  /**
+   * Ends the episode once the player has run out of lives
+   *
+   * @param level The level on which the game ended
+   */
+  @Override
+  public void onGameOver(Level level) {
+    done = true;
+  }
+}
@@ -0,0 +1,110 @@
+package simulation;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streams the key presses of a game to an {@link InputRecording} file as they happen, so the game
+ * can later be replayed by a {@link ReplayEngine}. Each key press costs three to five bytes.
+ */
+public class InputRecorder implements Closeable {
+  /** The stream the recording is written to */
+  private final DataOutputStream out;
+  /** The step of the most recent key press, events are stored relative to it */
+  private long lastEventStep;
+  /** Whether the end of the recording has been written */
+  private boolean finished;
+
+  /**
+   * Starts a recording in a file
+   *
+   * @param path The path of the file to write, replacing any existing file
+   * @param seed The seed of the recorded game
+   * @param startLevel The world the recorded game starts on
+   * @param step The length of a simulation step (milliseconds)
+   * @throws IOException If the file cannot be written
+   */
+  public InputRecorder(String path, long seed, int startLevel, int step) throws IOException {
+    this(new BufferedOutputStream(new FileOutputStream(path)), seed, startLevel, step);
+  }
+
+  /**
+   * Starts a recording on a stream
+   *
+   * @param stream The stream to write the recording to
+   * @param seed The seed of the recorded game
+   * @param startLevel The world the recorded game starts on
+   * @param step The length of a simulation step (milliseconds)
+   * @throws IOException If the stream cannot be written
+   */
+  public InputRecorder(OutputStream stream, long seed, int startLevel, int step)
+      throws IOException {
+    out = new DataOutputStream(stream);
+    out.writeInt(InputRecording.MAGIC);
+    out.writeByte(InputRecording.VERSION);
+    out.writeLong(seed);
+    writeVarLong(startLevel);
+    writeVarLong(step);
+  }
+
+  /**
+   * Writes an unsigned variable-length integer, 7 bits per byte
+   *
+   * @param value The non-negative value to write
+   * @throws IOException If the stream cannot be written
+   */
+  private void writeVarLong(long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  /**
+   * Records a key press
+   *
+   * @param stepNumber The number of simulation steps run before the key press arrived
+   * @param key The key pressed
+   * @param c The character of the key pressed
+   * @throws IOException If the recording cannot be written
+   */
+  public void record(long stepNumber, int key, char c) throws IOException {
+    if (finished) {
+      return;
+    }
+    writeVarLong(stepNumber - lastEventStep);
+    writeVarLong(key + 1);
+    writeVarLong(c);
+    lastEventStep = stepNumber;
+  }
+
+  /**
+   * Ends the recording with the length of the game and the state it ended in. Later calls do
+   * nothing.
+   *
+   * @param totalSteps The number of simulation steps the game ran for
+   * @param finalDigest The {@link core.Level#getStateDigest()} of the level the game ended on
+   * @throws IOException If the recording cannot be written
+   */
+  public void finish(long totalSteps, long finalDigest) throws IOException {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    writeVarLong(totalSteps - lastEventStep);
+    writeVarLong(0);
+    out.writeLong(finalDigest);
+    out.flush();
+  }
+
+  /** Closes the recording file, which is left unfinished if {@link #finish} was not called */
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
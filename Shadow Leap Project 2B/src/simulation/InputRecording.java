@@ -0,0 +1,205 @@
+package simulation;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * A recorded game: the seed and world it started from, every key press with the simulation step
+ * it arrived before, and the length and final state of the game. Together with a deterministic
+ * {@link LevelSession} this is all that is needed to play the game out again exactly.
+ *
+ * <p>Recordings are written by {@link InputRecorder} in a compact binary format:
+ *
+ * <pre>
+ *   int     magic ("SLRP")
+ *   byte    version
+ *   long    seed
+ *   varint  start level
+ *   varint  simulation step (milliseconds)
+ *   events  varint steps since the previous event, varint key + 1, varint char
+ *   end     varint steps since the last event, varint 0
+ *   long    state digest of the level the game ended on
+ * </pre>
+ */
+public class InputRecording {
+  /** Identifies a recording file ("SLRP") */
+  static final int MAGIC = 0x534C5250;
+  /** The version of the format written by {@link InputRecorder} */
+  static final byte VERSION = 1;
+  /** The seed of the recorded game */
+  private final long seed;
+  /** The world the recorded game started on */
+  private final int startLevel;
+  /** The length of a simulation step in the recorded game (milliseconds) */
+  private final int step;
+  /** The number of key presses recorded */
+  private int eventCount;
+  /** The step each key press arrived before, in increasing order */
+  private long[] eventSteps = new long[16];
+  /** The key of each key press */
+  private int[] eventKeys = new int[16];
+  /** The character of each key press */
+  private char[] eventChars = new char[16];
+  /** The number of simulation steps the recorded game ran for */
+  private long totalSteps;
+  /** The state digest of the level the recorded game ended on */
+  private long finalDigest;
+
+  /**
+   * Initialises an empty recording
+   *
+   * @param seed The seed of the recorded game
+   * @param startLevel The world the recorded game started on
+   * @param step The length of a simulation step (milliseconds)
+   */
+  InputRecording(long seed, int startLevel, int step) {
+    this.seed = seed;
+    this.startLevel = startLevel;
+    this.step = step;
+  }
+
+  /**
+   * Reads a recording from a file
+   *
+   * @param path The path of the recording
+   * @return The recording
+   * @throws IOException If the file cannot be read or is not a recording
+   */
+  public static InputRecording read(String path) throws IOException {
+    try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+      return read(in);
+    }
+  }
+
+  /**
+   * Reads a recording from a stream
+   *
+   * @param stream The stream positioned at the start of the recording
+   * @return The recording
+   * @throws IOException If the stream cannot be read or does not hold a recording
+   */
+  public static InputRecording read(InputStream stream) throws IOException {
+    DataInputStream in = new DataInputStream(stream);
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not an input recording");
+    }
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported input recording version " + version);
+    }
+    long seed = in.readLong();
+    InputRecording recording =
+        new InputRecording(seed, (int) readVarLong(in), (int) readVarLong(in));
+    long stepNumber = 0;
+    while (true) {
+      stepNumber += readVarLong(in);
+      int key = (int) readVarLong(in) - 1;
+      if (key < 0) {
+        break;
+      }
+      recording.addEvent(stepNumber, key, (char) readVarLong(in));
+    }
+    recording.finish(stepNumber, in.readLong());
+    return recording;
+  }
+
+  /**
+   * Reads an unsigned variable-length integer, 7 bits per byte with the high bit set on every byte
+   * but the last
+   *
+   * @param in The stream to read from
+   * @return The value read
+   * @throws IOException If the stream ends early
+   */
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException("Input recording is truncated");
+      }
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in input recording");
+  }
+
+  /**
+   * Appends a key press to the recording
+   *
+   * @param stepNumber The simulation step the key press arrived before
+   * @param key The key pressed
+   * @param c The character of the key pressed
+   */
+  void addEvent(long stepNumber, int key, char c) {
+    if (eventCount == eventSteps.length) {
+      eventSteps = Arrays.copyOf(eventSteps, eventCount * 2);
+      eventKeys = Arrays.copyOf(eventKeys, eventCount * 2);
+      eventChars = Arrays.copyOf(eventChars, eventCount * 2);
+    }
+    eventSteps[eventCount] = stepNumber;
+    eventKeys[eventCount] = key;
+    eventChars[eventCount] = c;
+    eventCount++;
+  }
+
+  /**
+   * Records how the game ended
+   *
+   * @param totalSteps The number of simulation steps the game ran for
+   * @param finalDigest The state digest of the level the game ended on
+   */
+  void finish(long totalSteps, long finalDigest) {
+    this.totalSteps = totalSteps;
+    this.finalDigest = finalDigest;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public int getStartLevel() {
+    return startLevel;
+  }
+
+  public int getStep() {
+    return step;
+  }
+
+  public int getEventCount() {
+    return eventCount;
+  }
+
+  /**
+   * Gets the simulation step a key press arrived before
+   *
+   * @param event The index of the key press
+   * @return The number of steps simulated before the key press
+   */
+  public long getEventStep(int event) {
+    return eventSteps[event];
+  }
+
+  public int getEventKey(int event) {
+    return eventKeys[event];
+  }
+
+  public char getEventChar(int event) {
+    return eventChars[event];
+  }
+
+  public long getTotalSteps() {
+    return totalSteps;
+  }
+
+  public long getFinalDigest() {
+    return finalDigest;
+  }
+}
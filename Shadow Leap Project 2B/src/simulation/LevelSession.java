@@ -0,0 +1,208 @@
+package simulation;
+
+import core.App;
+import core.Level;
+import core.LevelHost;
+import utilities.SeededRandom;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A single, independent game running headlessly. The session owns its current Level, moves on to
+ * the next world when a level is completed, and keeps track of how long each frame took to
+ * simulate.
+ */
+public class LevelSession implements LevelHost {
+  /** Identifies the session within its host */
+  private final int sessionId;
+  /** The seed every world of the session derives its random number generator from */
+  private final long seed;
+  /** The level currently being simulated */
+  private Level currentLevel;
+  /** Whether the levels of the session position constant-velocity movers analytically */
+  private boolean analyticMotion;
+  /** The pool the levels of the session tick their lanes on, null to tick on a single thread */
+  private ForkJoinPool parallelUpdatePool;
+  /** Flag that indicates whether the game has ended */
+  private boolean finished = false;
+  /** The number of frames simulated so far */
+  private long frameCount;
+  /** The time taken to simulate the most recent frame (nanoseconds) */
+  private long lastFrameNanos;
+  /** The total time spent simulating frames (nanoseconds) */
+  private long totalFrameNanos;
+
+  /**
+   * Initialises a new session starting on a given world
+   *
+   * @param sessionId Identifies the session within its host
+   * @param startLevel The number of the level to start on
+   */
+  public LevelSession(int sessionId, int startLevel) {
+    this(sessionId, startLevel, SeededRandom.randomSeed());
+  }
+
+  /**
+   * Initialises a new session whose game is reproducible: two sessions with the same seed that are
+   * stepped and sent key presses in the same way always play out identically
+   *
+   * @param sessionId Identifies the session within its host
+   * @param startLevel The number of the level to start on
+   * @param seed The seed of the game
+   */
+  public LevelSession(int sessionId, int startLevel, long seed) {
+    this.sessionId = sessionId;
+    this.seed = seed;
+    currentLevel = new Level(startLevel, true, SeededRandom.deriveSeed(seed, startLevel), this);
+  }
+
+  /**
+   * Gets the number identifying this session
+   *
+   * @return The session id
+   */
+  public int getSessionId() {
+    return sessionId;
+  }
+
+  /**
+   * Gets the seed of the game in this session
+   *
+   * @return The seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Gets the level currently being simulated
+   *
+   * @return The current Level
+   */
+  public Level getCurrentLevel() {
+    return currentLevel;
+  }
+
+  /**
+   * Specifies whether the game in this session has ended
+   *
+   * @return True if the game is over or all worlds are complete, else False
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * Gets the number of frames simulated by this session
+   *
+   * @return The number of frames simulated
+   */
+  public long getFrameCount() {
+    return frameCount;
+  }
+
+  /**
+   * Gets the time taken to simulate the most recent frame
+   *
+   * @return Frame time in nanoseconds
+   */
+  public long getLastFrameNanos() {
+    return lastFrameNanos;
+  }
+
+  /**
+   * Gets the average time taken to simulate a frame
+   *
+   * @return Average frame time in nanoseconds, 0 if no frames were simulated
+   */
+  public double getAverageFrameNanos() {
+    return frameCount == 0 ? 0 : (double) totalFrameNanos / frameCount;
+  }
+
+  /**
+   * Specifies whether the current and all following levels position their constant-velocity movers
+   * analytically (see {@link Level#setAnalyticMotion(boolean)}). Faster, but no longer identical
+   * to the game played in {@link App}.
+   *
+   * @param enabled True to compute the movers' positions from the time passed, else False
+   */
+  public void setAnalyticMotion(boolean enabled) {
+    analyticMotion = enabled;
+    currentLevel.setAnalyticMotion(enabled);
+  }
+
+  /**
+   * Specifies whether the current and all following levels tick their lanes concurrently (see
+   * {@link Level#setParallelUpdate(ForkJoinPool)}). The game plays out identically either way.
+   *
+   * @param pool The pool to tick lanes on, null to tick every Sprite on the stepping thread
+   */
+  public void setParallelUpdate(ForkJoinPool pool) {
+    parallelUpdatePool = pool;
+    currentLevel.setParallelUpdate(pool);
+  }
+
+  /**
+   * Forwards a key press to the current level
+   *
+   * @param key The ASCII value of the key pressed
+   * @param c The ASCII character of the key pressed
+   */
+  public void onKeyPressed(int key, char c) {
+    if (!finished) {
+      currentLevel.onKeyPressed(key, c);
+    }
+  }
+
+  /**
+   * Simulates a single fixed step of the game's simulation (see {@link App#getSimulationStep()}),
+   * without waiting for real time to pass
+   */
+  public void step() {
+    step(App.getSimulationStep());
+  }
+
+  /**
+   * Simulates a single frame and records the time it took
+   *
+   * @param delta Time passed since last frame (milliseconds).
+   */
+  public void step(int delta) {
+    if (finished) {
+      return;
+    }
+    long start = System.nanoTime();
+    currentLevel.update(delta);
+    lastFrameNanos = System.nanoTime() - start;
+    totalFrameNanos += lastFrameNanos;
+    frameCount++;
+  }
+
+  /**
+   * Moves on to the next world, or ends the session after the last one
+   *
+   * @param level The level that has been completed
+   */
+  @Override
+  public void onLevelFinished(Level level) {
+    int nextWorldNum = level.getLevelNumber() + 1;
+    if (nextWorldNum >= App.getNumberOfWorlds()) {
+      finished = true;
+      return;
+    }
+    currentLevel =
+        new Level(nextWorldNum, true, SeededRandom.deriveSeed(seed, nextWorldNum), this);
+    currentLevel.setAnalyticMotion(analyticMotion);
+    currentLevel.setParallelUpdate(parallelUpdatePool);
+  }
+
+  /**
+   * Ends the session once the player has run out of lives
+   *
+   * @param level The level on which the game ended
+   */
+  @Override
+  public void onGameOver(Level level) {
+    finished = true;
+  }
+}
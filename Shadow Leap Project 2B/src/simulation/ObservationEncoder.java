@@ -0,0 +1,210 @@
+package simulation;
+
+import base.AssetType;
+import base.Player;
+import base.Sprite;
+import core.App;
+import core.EntityStore;
+import core.Level;
+import core.SpriteAssetManager;
+import customsprites.MagicianSprite;
+import customsprites.PowerUp;
+import utilities.BoundingBox;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes the board of a level as a grid of tile types, rasterising the hitbox of every Sprite on
+ * the Sprite Map in a single pass without allocating.
+ *
+ * <p>The encoding is a flat array of {@link #SIZE} bytes, {@link #COLUMNS} per row and {@link
+ * #ROWS} rows, from the top left of the screen. Cell (column, row) is at index row * {@link
+ * #COLUMNS} + column and is centered on (column, row) tile lengths, where the tiles of the levels
+ * sit. A cell describes whatever Sprites cover its center:
+ *
+ * <pre>
+ * bits 0-3  tile type, later Sprites on the Sprite Map covering earlier ones
+ *             0 empty, 1 water, 2 grass, 3 tree, 4 vehicle (including bikes and bulldozers),
+ *             5 log, 6 turtle (only while visible), 7 filled hole
+ * bit 4     the player is in the cell
+ * bit 5     a power-up is in the cell
+ * bits 6-7  always 0
+ * </pre>
+ *
+ * <p>When encoding into a direct ByteBuffer, consumers outside the JVM can read the grid in place
+ * as an unsigned 8-bit tensor of shape [{@link #ROWS}, {@link #COLUMNS}]. Each encoder keeps its
+ * own reusable state, so use one encoder per thread.
+ */
+public class ObservationEncoder {
+  /** The number of columns of the grid */
+  public static final int COLUMNS =
+      (int) Math.ceil((float) App.getScreenWidth() / App.getTileLength());
+  /** The number of rows of the grid */
+  public static final int ROWS = App.getScreenHeight() / App.getTileLength();
+  /** The number of bytes of an encoded grid */
+  public static final int SIZE = COLUMNS * ROWS;
+  /** A cell not covered by any Sprite, such as an unfilled hole */
+  public static final byte EMPTY = 0;
+  /** A cell of water */
+  public static final byte WATER = 1;
+  /** A cell of grass */
+  public static final byte GRASS = 2;
+  /** A cell holding a tree */
+  public static final byte TREE = 3;
+  /** A cell covered by a vehicle */
+  public static final byte VEHICLE = 4;
+  /** A cell covered by a log */
+  public static final byte LOG = 5;
+  /** A cell covered by a turtle that is above water */
+  public static final byte TURTLE = 6;
+  /** A hole the player has already filled */
+  public static final byte FILLED_HOLE = 7;
+  /** Selects the tile type of a cell */
+  public static final int TYPE_MASK = 0x0F;
+  /** Set in the cell holding the player */
+  public static final int PLAYER_FLAG = 0x10;
+  /** Set in the cells holding a power-up */
+  public static final int POWER_UP_FLAG = 0x20;
+  /** Marks an asset that has not been classified yet */
+  private static final byte UNCLASSIFIED = -1;
+  /** The code written for each asset, by the asset id interned by the level's EntityStore */
+  private byte[] assetCodes = new byte[16];
+  /** The EntityStore whose asset ids {@link #assetCodes} refers to */
+  private EntityStore classifiedStore;
+  /** Holds the grid while encoding into a ByteBuffer */
+  private final byte[] grid = new byte[SIZE];
+
+  /**
+   * Encodes the board of a level into a byte array
+   *
+   * @param level The level to encode
+   * @param out The array to write {@link #SIZE} bytes to
+   * @param offset The position of the grid in the array
+   */
+  public void encode(Level level, byte[] out, int offset) {
+    Arrays.fill(out, offset, offset + SIZE, EMPTY);
+    SpriteAssetManager manager = level.getSpriteManager();
+    EntityStore store = manager.getEntityStore();
+    if (store != classifiedStore) {
+      Arrays.fill(assetCodes, UNCLASSIFIED);
+      classifiedStore = store;
+    }
+    List<Sprite> sprites = manager.getSpriteMap();
+    for (int i = 0; i < sprites.size(); i++) {
+      Sprite sprite = sprites.get(i);
+      if (!manager.isOnSpriteMap(sprite) || !sprite.isVisible()) {
+        continue;
+      }
+      int code = getCode(manager, sprite);
+      if (code != EMPTY) {
+        rasterise(out, offset, sprite.getHitBox(), code);
+      }
+    }
+  }
+
+  /**
+   * Encodes the board of a level into a buffer, from its position onwards. The position of the
+   * buffer is left unchanged.
+   *
+   * @param level The level to encode
+   * @param out The buffer to write {@link #SIZE} bytes to, preferably direct
+   */
+  public void encode(Level level, ByteBuffer out) {
+    encode(level, grid, 0);
+    int position = out.position();
+    out.put(grid);
+    out.position(position);
+  }
+
+  /**
+   * Gets the code a Sprite contributes to the cells it covers, classifying its asset the first time
+   * it is seen
+   *
+   * @param manager The Sprite Manager of the level being encoded
+   * @param sprite The Sprite
+   * @return A tile type or flag, {@link #EMPTY} if the Sprite does not show up in the grid
+   */
+  private int getCode(SpriteAssetManager manager, Sprite sprite) {
+    int assetId = classifiedStore.getAssetId(sprite.getEntityIndex());
+    if (assetId >= assetCodes.length) {
+      int length = assetCodes.length;
+      assetCodes = Arrays.copyOf(assetCodes, Math.max(assetId + 1, length * 2));
+      Arrays.fill(assetCodes, length, assetCodes.length, UNCLASSIFIED);
+    }
+    if (assetCodes[assetId] == UNCLASSIFIED) {
+      assetCodes[assetId] = classify(manager, sprite);
+    }
+    return assetCodes[assetId];
+  }
+
+  /**
+   * Works out the code of a Sprite from its class and AssetType. Every Sprite of an asset has the
+   * same class, so the result holds for the whole asset.
+   *
+   * @param manager The Sprite Manager of the level being encoded
+   * @param sprite The Sprite
+   * @return A tile type or flag, {@link #EMPTY} if the Sprite does not show up in the grid
+   */
+  private static byte classify(SpriteAssetManager manager, Sprite sprite) {
+    if (sprite instanceof Player) {
+      return PLAYER_FLAG;
+    }
+    if (sprite instanceof PowerUp) {
+      return POWER_UP_FLAG;
+    }
+    if (sprite instanceof MagicianSprite) {
+      return TURTLE;
+    }
+    if (sprite.getSpriteName().equals(Level.PROGRESS_MARKER)) {
+      return FILLED_HOLE;
+    }
+    AssetType type = manager.getAssetType(sprite.getSpriteName());
+    if (type == null) {
+      /* the remaining special Sprites are the bikes */
+      return sprite.isStatic() ? EMPTY : VEHICLE;
+    }
+    switch (type) {
+      case PASSIVE_OBSTACLE:
+        return WATER;
+      case FRIENDLY_TILE:
+        return GRASS;
+      case SOLID_TILE:
+        return sprite.isStatic() ? TREE : VEHICLE;
+      case MOVING_OBSTACLE:
+        return VEHICLE;
+      case DRIVER_OBJECT:
+        return LOG;
+      default:
+        return EMPTY;
+    }
+  }
+
+  /**
+   * Applies a code to every cell whose center lies within a hitbox. Tile types replace the type of
+   * the cell, flags are added to it.
+   *
+   * @param out The array holding the grid
+   * @param offset The position of the grid in the array
+   * @param box The hitbox to rasterise, null to write nothing
+   * @param code The tile type or flag to apply
+   */
+  private static void rasterise(byte[] out, int offset, BoundingBox box, int code) {
+    if (box == null) {
+      return;
+    }
+    float tile = App.getTileLength();
+    int firstColumn = Math.max(0, (int) Math.ceil(box.getLeft() / tile));
+    int lastColumn = Math.min(COLUMNS, (int) Math.ceil(box.getRight() / tile)) - 1;
+    int firstRow = Math.max(0, (int) Math.ceil(box.getTop() / tile));
+    int lastRow = Math.min(ROWS, (int) Math.ceil(box.getBottom() / tile)) - 1;
+    int keep = (code & TYPE_MASK) != 0 ? ~TYPE_MASK : ~0;
+    for (int row = firstRow; row <= lastRow; row++) {
+      int cell = offset + row * COLUMNS;
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        out[cell + column] = (byte) ((out[cell + column] & keep) | code);
+      }
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package simulation;
+
+import core.Level;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+/**
+ * Plays recorded games again headlessly, as fast as they can be simulated, and checks that each
+ * one ends in exactly the state it was recorded in. Any change to the game's behaviour shows up as
+ * a digest mismatch, and the time taken per step tracks its performance.
+ */
+public class ReplayEngine {
+  /** The file extension of recordings picked up from a directory */
+  public static final String RECORDING_EXTENSION = ".replay";
+  /** The argument replaying every level with its lanes ticked concurrently */
+  public static final String PARALLEL_FLAG = "--parallel";
+
+  /**
+   * Replays a recorded game
+   *
+   * @param recording The recorded game
+   * @return The outcome of the replay
+   */
+  public static Result replay(InputRecording recording) {
+    return replay(recording, null);
+  }
+
+  /**
+   * Replays a recorded game, optionally ticking the lanes of its levels concurrently
+   *
+   * @param recording The recorded game
+   * @param pool The pool to tick lanes on, null to replay on a single thread
+   * @return The outcome of the replay
+   */
+  public static Result replay(InputRecording recording, ForkJoinPool pool) {
+    LevelSession session = new LevelSession(0, recording.getStartLevel(), recording.getSeed());
+    session.setParallelUpdate(pool);
+    long totalSteps = recording.getTotalSteps();
+    int event = 0;
+    long start = System.nanoTime();
+    for (long step = 0; step <= totalSteps && !session.isFinished(); step++) {
+      /* key presses arrive before the step they were recorded against */
+      while (event < recording.getEventCount() && recording.getEventStep(event) == step) {
+        session.onKeyPressed(recording.getEventKey(event), recording.getEventChar(event));
+        event++;
+      }
+      if (step < totalSteps) {
+        session.step(recording.getStep());
+      }
+    }
+    long nanos = System.nanoTime() - start;
+    return new Result(session, recording.getFinalDigest(), nanos);
+  }
+
+  /**
+   * Replays every recording given, in parallel across the available cores, and reports whether
+   * each one still ends in its recorded state. With {@value #PARALLEL_FLAG}, the lanes of every
+   * level are ticked concurrently as well, which must not change any outcome.
+   *
+   * @param args Recording files, or directories whose {@value #RECORDING_EXTENSION} files are all
+   *     replayed, optionally preceded by {@value #PARALLEL_FLAG}
+   * @throws InterruptedException If interrupted while waiting for the replays
+   */
+  public static void main(String[] args) throws InterruptedException {
+    LogManager.getLogManager().reset();
+    Logger.getLogger("").setLevel(java.util.logging.Level.OFF);
+    List<File> files = new ArrayList<>();
+    ForkJoinPool lanePool = null;
+    for (String arg : args) {
+      if (arg.equals(PARALLEL_FLAG)) {
+        lanePool = ForkJoinPool.commonPool();
+        continue;
+      }
+      File file = new File(arg);
+      File[] recordings = file.listFiles((dir, name) -> name.endsWith(RECORDING_EXTENSION));
+      if (recordings == null) {
+        files.add(file);
+      } else {
+        Arrays.sort(recordings);
+        files.addAll(Arrays.asList(recordings));
+      }
+    }
+    ExecutorService workers =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    List<Future<Result>> results = new ArrayList<>();
+    ForkJoinPool pool = lanePool;
+    for (File file : files) {
+      results.add(workers.submit(() -> replay(InputRecording.read(file.getPath()), pool)));
+    }
+    int failures = 0;
+    long steps = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < files.size(); i++) {
+      String name = files.get(i).getName();
+      try {
+        Result result = results.get(i).get();
+        steps += result.getSteps();
+        if (!result.matches()) {
+          failures++;
+        }
+        System.out.println(
+            String.format(
+                "%s: %s after %d steps on world %d with %d lives, %.2f us/step",
+                name,
+                result.matches() ? "OK" : "MISMATCH",
+                result.getSteps(),
+                result.getLevelNumber(),
+                result.getLives(),
+                result.getNanosPerStep() / 1000));
+      } catch (ExecutionException e) {
+        failures++;
+        Throwable cause = e.getCause();
+        System.out.println(name + ": FAILED " + cause);
+        if (!(cause instanceof IOException)) {
+          cause.printStackTrace();
+        }
+      }
+    }
+    workers.shutdown();
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.println(
+        String.format(
+            "%d recordings, %d failed, %d steps in %.2f s",
+            files.size(),
+            failures,
+            steps,
+            seconds));
+    System.exit(failures == 0 ? 0 : 1);
+  }
+
+  /** The outcome of replaying a single recording */
+  public static class Result {
+    /** The number of simulation steps replayed */
+    private final long steps;
+    /** The world the replay ended on */
+    private final int levelNumber;
+    /** The lives the player had left */
+    private final int lives;
+    /** The state digest of the level the replay ended on */
+    private final long digest;
+    /** The state digest the recording ended on */
+    private final long expectedDigest;
+    /** The time taken to replay (nanoseconds) */
+    private final long nanos;
+
+    private Result(LevelSession session, long expectedDigest, long nanos) {
+      Level level = session.getCurrentLevel();
+      steps = session.getFrameCount();
+      levelNumber = level.getLevelNumber();
+      lives = level.getSpriteManager().getPlayer().getLives();
+      digest = level.getStateDigest();
+      this.expectedDigest = expectedDigest;
+      this.nanos = nanos;
+    }
+
+    /**
+     * Specifies whether the replay ended in the same state as the recorded game
+     *
+     * @return True if the state digests match, else False
+     */
+    public boolean matches() {
+      return digest == expectedDigest;
+    }
+
+    public long getSteps() {
+      return steps;
+    }
+
+    public int getLevelNumber() {
+      return levelNumber;
+    }
+
+    public int getLives() {
+      return lives;
+    }
+
+    public long getDigest() {
+      return digest;
+    }
+
+    /**
+     * Gets the average time taken to replay a simulation step
+     *
+     * @return Step time in nanoseconds, 0 if no steps were replayed
+     */
+    public double getNanosPerStep() {
+      return steps == 0 ? 0 : (double) nanos / steps;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package simulation;
+
+import core.App;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many independent headless games in a single JVM, stepping them across a worker pool that
+ * is sized to the number of available cores.
+ */
+public class SimulationHost implements AutoCloseable {
+  /** Used for internal JVM logging */
+  private final Logger log = Logger.getLogger(getClass().getSimpleName());
+  /** Every session hosted, in order of their id */
+  private final List<LevelSession> sessions = new ArrayList<>();
+  /** One task per session, reused for every step */
+  private final List<Callable<Void>> stepTasks = new ArrayList<>();
+  /** Worker pool stepping the sessions */
+  private final ExecutorService workers;
+  /** The frame time passed to the sessions on the next step */
+  private volatile int stepDelta;
+
+  /**
+   * Initialises a host running a number of sessions, each starting on the same world
+   *
+   * @param instances The number of independent sessions to host
+   * @param startLevel The number of the level every session starts on
+   */
+  public SimulationHost(int instances, int startLevel) {
+    int threads = Math.min(instances, Runtime.getRuntime().availableProcessors());
+    workers = Executors.newFixedThreadPool(Math.max(1, threads));
+    for (int i = 0; i < instances; i++) {
+      LevelSession session = new LevelSession(i, startLevel);
+      sessions.add(session);
+      stepTasks.add(
+          () -> {
+            session.step(stepDelta);
+            return null;
+          });
+    }
+  }
+
+  /**
+   * Runs a number of sessions for a number of fixed simulation steps, as fast as they can be
+   * computed, and prints their frame times.
+   *
+   * @param args The number of instances, followed by the number of frames to simulate
+   */
+  public static void main(String[] args) {
+    int instances = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int frames = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    try (SimulationHost host = new SimulationHost(instances, 0)) {
+      long start = System.nanoTime();
+      for (int i = 0; i < frames; i++) {
+        host.step(App.getSimulationStep());
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      for (LevelSession session : host.getSessions()) {
+        System.out.println(
+            String.format(
+                "Session %d: %d frames, %.1f us/frame",
+                session.getSessionId(),
+                session.getFrameCount(),
+                session.getAverageFrameNanos() / 1000));
+      }
+      System.out.println(
+          String.format("%.0f session frames per second", instances * frames / seconds));
+    }
+  }
+
+  /**
+   * Gets every hosted session
+   *
+   * @return An unmodifiable list of sessions, in order of their id
+   */
+  public List<LevelSession> getSessions() {
+    return Collections.unmodifiableList(sessions);
+  }
+
+  /**
+   * Simulates a single frame on every session, returning once all sessions have been stepped
+   *
+   * @param delta Time passed since last frame (milliseconds).
+   */
+  public void step(int delta) {
+    stepDelta = delta;
+    try {
+      for (Future<Void> result : workers.invokeAll(stepTasks)) {
+        result.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      log.log(Level.SEVERE, "A session failed to step", e.getCause());
+    }
+  }
+
+  /** Stops the worker pool */
+  @Override
+  public void close() {
+    workers.shutdown();
+  }
+}
@@ -0,0 +1,251 @@
+package simulation;
+
+import utilities.SeededRandom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+/**
+ * A batch of {@link GameEnvironment}s stepped in lockstep across a worker pool sized to the number
+ * of available cores. Every call steps every environment once, with observations, rewards and done
+ * flags written into caller-supplied arrays indexed by environment.
+ *
+ * <p>An environment whose episode ends is reset straight away, as in Gym's vector environments: its
+ * done flag is set and the observation returned is the first observation of its next episode. The
+ * episodes of environment i are seeded from the seed given to {@link #reset(long, byte[])}, i and
+ * the number of episodes it has played, so a batch replays identically for the same actions.
+ */
+public class VectorEnvironment implements AutoCloseable {
+  /** The number of environments stepped by a single task */
+  private static final int ENVIRONMENTS_PER_TASK = 16;
+  /** Every environment in the batch */
+  private final GameEnvironment[] environments;
+  /** The number of episodes each environment has started */
+  private final int[] episodes;
+  /** One task per slice of the batch, reused for every reset and step */
+  private final List<Callable<Void>> tasks = new ArrayList<>();
+  /** Worker pool stepping the environments */
+  private final ExecutorService workers;
+  /** The seed of the batch */
+  private volatile long seed;
+  /** Whether the tasks reset their environments instead of stepping them */
+  private volatile boolean resetting;
+  /** The actions of the current step, by environment */
+  private volatile int[] actions;
+  /** The buffer the current call writes observations to */
+  private volatile byte[] observations;
+  /** The array the current step writes rewards to */
+  private volatile float[] rewards;
+  /** The array the current step writes done flags to */
+  private volatile boolean[] dones;
+
+  /**
+   * Initialises a batch of environments whose actions last {@link
+   * GameEnvironment#DEFAULT_STEPS_PER_ACTION} steps
+   *
+   * @param size The number of environments
+   * @param startLevel The world every episode is played on
+   */
+  public VectorEnvironment(int size, int startLevel) {
+    this(size, startLevel, GameEnvironment.DEFAULT_STEPS_PER_ACTION);
+  }
+
+  /**
+   * Initialises a batch of environments. No episode is running until {@link #reset(long, byte[])}
+   * is called.
+   *
+   * @param size The number of environments
+   * @param startLevel The world every episode is played on
+   * @param stepsPerAction The number of simulation steps an action lasts
+   */
+  public VectorEnvironment(int size, int startLevel, int stepsPerAction) {
+    environments = new GameEnvironment[size];
+    episodes = new int[size];
+    for (int i = 0; i < size; i++) {
+      environments[i] = new GameEnvironment(startLevel, stepsPerAction);
+    }
+    for (int start = 0; start < size; start += ENVIRONMENTS_PER_TASK) {
+      int first = start;
+      int end = Math.min(size, start + ENVIRONMENTS_PER_TASK);
+      tasks.add(
+          () -> {
+            for (int i = first; i < end; i++) {
+              if (resetting) {
+                resetEnvironment(i);
+              } else {
+                stepEnvironment(i);
+              }
+            }
+            return null;
+          });
+    }
+    int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+    workers = Executors.newFixedThreadPool(Math.max(1, threads));
+  }
+
+  /**
+   * Runs a batch of environments with random actions for a number of steps, as fast as they can be
+   * computed, and prints the environment steps per second.
+   *
+   * @param args The number of environments, followed by the number of steps to take
+   */
+  public static void main(String[] args) {
+    LogManager.getLogManager().reset();
+    Logger.getLogger("").setLevel(java.util.logging.Level.OFF);
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+    int steps = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int[] actions = new int[size];
+    byte[] observations = new byte[size * GameEnvironment.OBSERVATION_SIZE];
+    float[] rewards = new float[size];
+    boolean[] dones = new boolean[size];
+    SeededRandom random = new SeededRandom(0);
+    try (VectorEnvironment batch = new VectorEnvironment(size, 0)) {
+      batch.reset(0, observations);
+      long start = System.nanoTime();
+      long episodes = 0;
+      for (int step = 0; step < steps; step++) {
+        for (int i = 0; i < size; i++) {
+          actions[i] = random.nextInt(GameEnvironment.ACTION_COUNT);
+        }
+        batch.step(actions, observations, rewards, dones);
+        for (boolean done : dones) {
+          episodes += done ? 1 : 0;
+        }
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.println(
+          String.format(
+              "%d environment steps, %d episodes in %.2f s: %.0f steps per second, %.2fM per"
+                  + " minute",
+              (long) size * steps,
+              episodes,
+              seconds,
+              size * steps / seconds,
+              size * steps / seconds * 60 / 1e6));
+    }
+  }
+
+  /**
+   * Gets the number of environments in the batch
+   *
+   * @return The number of environments
+   */
+  public int size() {
+    return environments.length;
+  }
+
+  /**
+   * Gets an environment of the batch
+   *
+   * @param index The index of the environment
+   * @return The environment
+   */
+  public GameEnvironment getEnvironment(int index) {
+    return environments[index];
+  }
+
+  /**
+   * Starts a new episode on every environment
+   *
+   * @param seed The seed of the batch
+   * @param observations The buffer to write the first observations to, {@link
+   *     GameEnvironment#OBSERVATION_SIZE} bytes per environment
+   */
+  public void reset(long seed, byte[] observations) {
+    checkLength(observations.length, environments.length * GameEnvironment.OBSERVATION_SIZE);
+    this.seed = seed;
+    this.observations = observations;
+    Arrays.fill(episodes, 0);
+    resetting = true;
+    runTasks();
+  }
+
+  /**
+   * Applies an action to every environment, resetting the environments whose episodes end
+   *
+   * @param actions The action of each environment
+   * @param observations The buffer to write the resulting observations to, {@link
+   *     GameEnvironment#OBSERVATION_SIZE} bytes per environment
+   * @param rewards The array to write the reward of each environment to
+   * @param dones The array to write whether the episode of each environment ended to
+   */
+  public void step(int[] actions, byte[] observations, float[] rewards, boolean[] dones) {
+    checkLength(actions.length, environments.length);
+    checkLength(observations.length, environments.length * GameEnvironment.OBSERVATION_SIZE);
+    checkLength(rewards.length, environments.length);
+    checkLength(dones.length, environments.length);
+    this.actions = actions;
+    this.observations = observations;
+    this.rewards = rewards;
+    this.dones = dones;
+    resetting = false;
+    runTasks();
+  }
+
+  /**
+   * Throws if a caller-supplied array is too short for the batch
+   *
+   * @param length The length of the array
+   * @param required The length the batch requires
+   */
+  private static void checkLength(int length, int required) {
+    if (length < required) {
+      throw new IllegalArgumentException(
+          "Buffer of length " + length + " is too short, " + required + " required");
+    }
+  }
+
+  /**
+   * Starts the next episode of an environment
+   *
+   * @param index The index of the environment
+   */
+  private void resetEnvironment(int index) {
+    long episodeSeed =
+        SeededRandom.deriveSeed(SeededRandom.deriveSeed(seed, index), episodes[index]);
+    episodes[index]++;
+    environments[index].reset(episodeSeed, observations, index * GameEnvironment.OBSERVATION_SIZE);
+  }
+
+  /**
+   * Steps an environment and starts its next episode if the current one ended
+   *
+   * @param index The index of the environment
+   */
+  private void stepEnvironment(int index) {
+    GameEnvironment environment = environments[index];
+    int offset = index * GameEnvironment.OBSERVATION_SIZE;
+    rewards[index] = environment.step(actions[index], observations, offset);
+    dones[index] = environment.isDone();
+    if (dones[index]) {
+      resetEnvironment(index);
+    }
+  }
+
+  /** Runs every task on the worker pool, returning once the whole batch has been processed */
+  private void runTasks() {
+    try {
+      for (Future<Void> result : workers.invokeAll(tasks)) {
+        result.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("An environment failed to step", e.getCause());
+    }
+  }
+
+  /** Stops the worker pool */
+  @Override
+  public void close() {
+    workers.shutdown();
+  }
+}
@@ -12,16 +12,21 @@ public class BoundingBox {
   private float height;
 
   public BoundingBox(Image img, Position centerPos) {
-    setWidth(img.getWidth());
-    setHeight(img.getHeight());
-    setX(centerPos.getX());
-    setY(centerPos.getY());
+    this(img.getWidth(), img.getHeight(), centerPos);
   }
 
   public BoundingBox(Image img, Position centerPos, boolean disableFuzz) {
+    this(img.getWidth(), img.getHeight(), centerPos, disableFuzz);
+  }
+
+  public BoundingBox(float width, float height, Position centerPos) {
+    this(width, height, centerPos, false);
+  }
+
+  public BoundingBox(float width, float height, Position centerPos, boolean disableFuzz) {
     this.disableFuzz = disableFuzz;
-    setWidth(img.getWidth());
-    setHeight(img.getHeight());
+    setWidth(width);
+    setHeight(height);
     setX(centerPos.getX());
     setY(centerPos.getY());
   }
@@ -58,6 +63,14 @@ public class BoundingBox {
     return top + height;
   }
 
+  public float getWidth() {
+    return width;
+  }
+
+  public float getHeight() {
+    return height;
+  }
+
   public boolean intersects(BoundingBox other) {
     return !(other.left > getRight()
         || other.getRight() < left
@@ -65,11 +78,49 @@ public class BoundingBox {
         || other.getBottom() < top);
   }
 
+  /**
+   * Checks whether another box touched this one at any point while moving in a straight line to
+   * where it is now, relative to this box. Unlike {@link #intersects(BoundingBox)}, a fast box
+   * cannot pass through this one between two checks.
+   *
+   * @param other The box that moved
+   * @param deltaX How far the other box moved horizontally, relative to this one
+   * @param deltaY How far the other box moved vertically, relative to this one
+   * @return True if the boxes overlapped at any point of the movement, else False
+   */
+  public boolean sweptIntersects(BoundingBox other, float deltaX, float deltaY) {
+    /* the other box overlaps at fraction s of the way back along its path when
+     * other.left - getRight() <= delta * s <= other.getRight() - left, on both axes */
+    double enter = 0;
+    double exit = 1;
+    double low = other.left - getRight();
+    double high = other.getRight() - left;
+    if (deltaX == 0) {
+      if (low > 0 || high < 0) return false;
+    } else {
+      enter = Math.max(enter, Math.min(low / deltaX, high / deltaX));
+      exit = Math.min(exit, Math.max(low / deltaX, high / deltaX));
+    }
+    low = other.top - getBottom();
+    high = other.getBottom() - top;
+    if (deltaY == 0) {
+      if (low > 0 || high < 0) return false;
+    } else {
+      enter = Math.max(enter, Math.min(low / deltaY, high / deltaY));
+      exit = Math.min(exit, Math.max(low / deltaY, high / deltaY));
+    }
+    return enter <= exit;
+  }
+
   public boolean intersects(Position other, float height, float width) {
-    return !(other.getX() - width / 2 > getRight()
-        || other.getX() + width / 2 < left
-        || other.getY() + height / 2 < getBottom()
-        || other.getY() - height / 2 > top);
+    return intersects(other.getX(), other.getY(), height, width);
+  }
+
+  public boolean intersects(float x, float y, float height, float width) {
+    return !(x - width / 2 > getRight()
+        || x + width / 2 < left
+        || y + height / 2 < getBottom()
+        || y - height / 2 > top);
   }
 
   @Override
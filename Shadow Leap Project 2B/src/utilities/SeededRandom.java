@@ -0,0 +1,101 @@
+package utilities;
+
+/**
+ * A small, fast pseudo-random number generator (SplitMix64) whose entire state is a single long.
+ * Two generators created with the same seed always produce the same sequence, which is what makes
+ * recorded games replayable, and the state can be read and restored at any point.
+ */
+public class SeededRandom {
+  /** The increment applied to the state on every draw (the 64-bit golden ratio) */
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+  /** The current state of the generator */
+  private long state;
+
+  /**
+   * Initialises a generator with a fixed seed
+   *
+   * @param seed The seed, where equal seeds give equal sequences
+   */
+  public SeededRandom(long seed) {
+    state = seed;
+  }
+
+  /**
+   * Picks a seed that differs between runs, for games that do not need to be reproduced
+   *
+   * @return A new seed
+   */
+  public static long randomSeed() {
+    return mix(System.nanoTime() ^ Thread.currentThread().getId() * GOLDEN_GAMMA);
+  }
+
+  /**
+   * Derives an independent seed for a numbered stream (e.g. one per world) from a base seed
+   *
+   * @param seed The base seed
+   * @param stream The number of the stream
+   * @return The seed for the stream
+   */
+  public static long deriveSeed(long seed, int stream) {
+    return mix(seed + (stream + 1) * GOLDEN_GAMMA);
+  }
+
+  /**
+   * Scrambles the bits of a value (the SplitMix64 finaliser)
+   *
+   * @param z The value to scramble
+   * @return The scrambled value
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Gets the current state of the generator
+   *
+   * @return The state, which can be passed to {@link #setState(long)} to resume the sequence
+   */
+  public long getState() {
+    return state;
+  }
+
+  /**
+   * Restores a state previously read with {@link #getState()}
+   *
+   * @param state The state to resume from
+   */
+  public void setState(long state) {
+    this.state = state;
+  }
+
+  /**
+   * Draws the next 64 random bits
+   *
+   * @return A uniformly distributed long
+   */
+  public long nextLong() {
+    state += GOLDEN_GAMMA;
+    return mix(state);
+  }
+
+  /**
+   * Draws a uniformly distributed integer in a range
+   *
+   * @param bound The exclusive upper bound, must be positive
+   * @return num such that 0 <= num < bound
+   */
+  public int nextInt(int bound) {
+    if (bound <= 0) {
+      throw new IllegalArgumentException("bound must be positive");
+    }
+    /* rejects the top, incomplete multiple of bound so every value is equally likely */
+    long limit = (1L << 31) - (1L << 31) % bound;
+    long bits;
+    do {
+      bits = nextLong() >>> 33;
+    } while (bits >= limit);
+    return (int) (bits % bound);
+  }
+}
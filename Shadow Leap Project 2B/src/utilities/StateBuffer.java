@@ -0,0 +1,180 @@
+package utilities;
+
+import java.util.Arrays;
+
+/**
+ * A flat buffer of 32-bit words that game state is written to and read back from in the same
+ * order. The words are held in fixed-size chunks so that buffers can be forked cheaply: a fork
+ * shares every chunk with the buffer it was forked from, and a chunk is only copied once a write
+ * would change one of its words. Writing the state of a game into a fork of an earlier snapshot of
+ * it therefore only copies the parts of the state that have changed since.
+ */
+public class StateBuffer {
+  /** The number of words in a chunk, as a power of two */
+  private static final int CHUNK_BITS = 8;
+  /** The number of words in a chunk */
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  /** Selects the position of a word within its chunk */
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  /** The words of the buffer */
+  private int[][] chunks;
+  /** Whether each chunk belongs to this buffer alone, rather than being shared with a fork */
+  private boolean[] owned;
+  /** The number of words written */
+  private int size;
+  /** The position of the next word to be read or written */
+  private int position;
+
+  /** Initialises an empty buffer */
+  public StateBuffer() {
+    chunks = new int[4][];
+    owned = new boolean[4];
+  }
+
+  /**
+   * Initialises a buffer sharing every chunk of another buffer
+   *
+   * @param source The buffer to fork
+   */
+  private StateBuffer(StateBuffer source) {
+    chunks = Arrays.copyOf(source.chunks, source.chunks.length);
+    owned = new boolean[chunks.length];
+    size = source.size;
+  }
+
+  /**
+   * Creates a copy of this buffer that shares its words until either buffer changes them
+   *
+   * @return A new buffer holding the same words, positioned at its start
+   */
+  public StateBuffer fork() {
+    Arrays.fill(owned, false);
+    return new StateBuffer(this);
+  }
+
+  /**
+   * Gets the number of words written to the buffer
+   *
+   * @return The number of words
+   */
+  public int size() {
+    return size;
+  }
+
+  /** Moves back to the start of the buffer, so its words can be read again or overwritten */
+  public void rewind() {
+    position = 0;
+  }
+
+  /**
+   * Moves back to the start of the buffer and discards its words. Chunks are kept, so writing the
+   * same state again reuses them.
+   */
+  public void clear() {
+    position = 0;
+    size = 0;
+  }
+
+  /**
+   * Writes a word at the current position
+   *
+   * @param value The word to write
+   */
+  public void writeInt(int value) {
+    int chunk = position >>> CHUNK_BITS;
+    if (chunk >= chunks.length) {
+      chunks = Arrays.copyOf(chunks, chunks.length * 2);
+      owned = Arrays.copyOf(owned, chunks.length);
+    }
+    int[] words = chunks[chunk];
+    if (!owned[chunk]) {
+      if (words != null && words[position & CHUNK_MASK] == value) {
+        /* unchanged, so a shared chunk can stay shared */
+        advance();
+        return;
+      }
+      words = words == null ? new int[CHUNK_SIZE] : words.clone();
+      chunks[chunk] = words;
+      owned[chunk] = true;
+    }
+    words[position & CHUNK_MASK] = value;
+    advance();
+  }
+
+  /** Moves past the word just written */
+  private void advance() {
+    position++;
+    size = Math.max(size, position);
+  }
+
+  /**
+   * Writes a float as a single word
+   *
+   * @param value The value to write
+   */
+  public void writeFloat(float value) {
+    writeInt(Float.floatToRawIntBits(value));
+  }
+
+  /**
+   * Writes a long as two words
+   *
+   * @param value The value to write
+   */
+  public void writeLong(long value) {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+  }
+
+  /**
+   * Writes a boolean as a single word
+   *
+   * @param value The value to write
+   */
+  public void writeBoolean(boolean value) {
+    writeInt(value ? 1 : 0);
+  }
+
+  /**
+   * Reads the word at the current position
+   *
+   * @return The word
+   * @throws IllegalStateException If every word has been read
+   */
+  public int readInt() {
+    if (position >= size) {
+      throw new IllegalStateException("Read past the end of the state buffer");
+    }
+    int value = chunks[position >>> CHUNK_BITS][position & CHUNK_MASK];
+    position++;
+    return value;
+  }
+
+  /**
+   * Reads a float written by {@link #writeFloat(float)}
+   *
+   * @return The value
+   */
+  public float readFloat() {
+    return Float.intBitsToFloat(readInt());
+  }
+
+  /**
+   * Reads a long written by {@link #writeLong(long)}
+   *
+   * @return The value
+   */
+  public long readLong() {
+    long high = readInt();
+    return high << 32 | (readInt() & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Reads a boolean written by {@link #writeBoolean(boolean)}
+   *
+   * @return The value
+   */
+  public boolean readBoolean() {
+    return readInt() != 0;
+  }
+}